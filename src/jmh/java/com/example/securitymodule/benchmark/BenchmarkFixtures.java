@@ -0,0 +1,53 @@
+package com.example.securitymodule.benchmark;
+
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.domain.UserPrincipal;
+import com.example.securitymodule.utility.JWTTokenProvider;
+import com.example.securitymodule.utility.JwtKeyRing;
+import com.example.securitymodule.utility.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static com.example.securitymodule.enumeration.Role.ROLE_SUPER_ADMIN;
+
+//  Builds the beans the benchmarks measure without starting Spring, wired the same way the context would wire them.
+final class BenchmarkFixtures {
+
+    static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret";
+    static final String USERNAME = "benchmark";
+
+    private BenchmarkFixtures() {
+    }
+
+    static JWTTokenProvider tokenProvider(boolean fastSigning, boolean authorityBitmask, boolean cacheEnabled) throws Exception {
+
+        JWTTokenProvider jwtTokenProvider = new JWTTokenProvider();
+        ReflectionTestUtils.setField(jwtTokenProvider, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtTokenProvider, "fastSigningEnabled", fastSigning);
+        ReflectionTestUtils.setField(jwtTokenProvider, "authorityBitmaskEnabled", authorityBitmask);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedTokenCache", new VerifiedTokenCache(cacheEnabled, 10_000_000, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtKeyRing", new JwtKeyRing("HS512", "", "", "", false));
+        ReflectionTestUtils.invokeMethod(jwtTokenProvider, "init"); // What @PostConstruct would do.
+
+        return jwtTokenProvider;
+    }
+
+    static UserPrincipal userPrincipal() {
+
+        User user = User.builder()
+                        .userId("0123456789")
+                        .username(USERNAME)
+                        .email("benchmark@example.com")
+                        .password("")
+                        .joinDate(new Date())
+                        .role(ROLE_SUPER_ADMIN.name())
+                        .authorities(ROLE_SUPER_ADMIN.getAuthorities())
+                        .isActive(true)
+                        .isNotLocked(true)
+                        .build();
+
+        return new UserPrincipal(user);
+    }
+}
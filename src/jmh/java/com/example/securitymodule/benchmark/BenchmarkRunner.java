@@ -0,0 +1,95 @@
+package com.example.securitymodule.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//  Runs the benchmarks with the GC profiler (allocation rate per operation) and writes the results as JSON.
+//  When "jmh.baseline" points to an earlier result file, every score is compared against it and the run fails on a regression.
+public final class BenchmarkRunner {
+
+    private static final double DEFAULT_THRESHOLD = 10; // Percent. Smaller differences are usually noise.
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        String result = System.getProperty("jmh.result", "target/jmh-result.json");
+        String baseline = System.getProperty("jmh.baseline", "");
+        double threshold = Double.parseDouble(System.getProperty("jmh.threshold", String.valueOf(DEFAULT_THRESHOLD)));
+
+        File resultFile = new File(result);
+        if(resultFile.getParentFile() != null){
+            resultFile.getParentFile().mkdirs();
+        }
+
+        Options options = new OptionsBuilder()
+                              .parent(new CommandLineOptions(args)) // Anything given on the command line wins.
+                              .addProfiler(GCProfiler.class)
+                              .resultFormat(ResultFormatType.JSON)
+                              .result(resultFile.getPath())
+                              .build();
+
+        new Runner(options).run();
+
+        if(StringUtils.isNotBlank(baseline) && !compare(new File(baseline), resultFile, threshold)){
+            System.exit(1);
+        }
+    }
+
+    static boolean compare(File baselineFile, File resultFile, double threshold) throws Exception {
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = scores(objectMapper.readTree(baselineFile));
+        Map<String, JsonNode> current = scores(objectMapper.readTree(resultFile));
+        boolean passed = true;
+
+        System.out.printf("%nComparison with %s (threshold %.1f%%)%n", baselineFile, threshold);
+
+        for(Map.Entry<String, JsonNode> entry : current.entrySet()){
+            JsonNode previous = baseline.get(entry.getKey());
+            if(previous == null){
+                continue; // New benchmark, nothing to compare with.
+            }
+
+            double before = previous.path("primaryMetric").path("score").asDouble();
+            double after = entry.getValue().path("primaryMetric").path("score").asDouble();
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().path("mode").asText());
+            double change = before == 0 ? 0 : (after - before) * 100 / before;
+            boolean regressed = higherIsBetter ? change < -threshold : change > threshold;
+
+            System.out.printf("%-100s %14.3f -> %14.3f %s %+7.1f%%%s%n",
+                    entry.getKey(), before, after, entry.getValue().path("primaryMetric").path("scoreUnit").asText(),
+                    change, regressed ? "  REGRESSION" : "");
+
+            passed &= !regressed;
+        }
+
+        return passed;
+    }
+
+    //    Benchmark, mode and parameters identify a score.
+    private static Map<String, JsonNode> scores(JsonNode results) {
+
+        Map<String, JsonNode> scores = new LinkedHashMap<>();
+
+        for(JsonNode result : results){
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()).append(" [").append(result.path("mode").asText()).append(']');
+            result.path("params").fields().forEachRemaining(param -> key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            scores.put(key.toString(), result);
+        }
+
+        return scores;
+    }
+}
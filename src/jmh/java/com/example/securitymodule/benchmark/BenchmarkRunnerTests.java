@@ -0,0 +1,56 @@
+package com.example.securitymodule.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//  Only compiled and run with -Pbenchmark, like the benchmarks.
+class BenchmarkRunnerTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void changesWithinTheThresholdPass() throws Exception {
+
+		File baseline = write("baseline.json", result("thrpt", 100) + "," + result("sample", 10));
+		File current = write("current.json", result("thrpt", 95) + "," + result("sample", 10.5));
+
+		assertTrue(BenchmarkRunner.compare(baseline, current, 10));
+	}
+
+	@Test
+	void lowerThroughputIsARegression() throws Exception {
+
+		File baseline = write("baseline.json", result("thrpt", 100));
+		File current = write("current.json", result("thrpt", 80));
+
+		assertFalse(BenchmarkRunner.compare(baseline, current, 10));
+	}
+
+	@Test
+	void higherLatencyIsARegression() throws Exception {
+
+		File baseline = write("baseline.json", result("sample", 10));
+		File current = write("current.json", result("sample", 12));
+
+		assertFalse(BenchmarkRunner.compare(baseline, current, 10));
+		assertTrue(BenchmarkRunner.compare(current, baseline, 10)); // Faster is never a regression.
+	}
+
+	private File write(String name, String results) throws Exception {
+		return Files.write(directory.resolve(name), ("[" + results + "]").getBytes(StandardCharsets.UTF_8)).toFile();
+	}
+
+	private static String result(String mode, double score) {
+		return "{\"benchmark\":\"JwtBenchmark.verify\",\"mode\":\"" + mode + "\",\"params\":{\"cacheEnabled\":\"true\"}," +
+			   "\"primaryMetric\":{\"score\":" + score + ",\"scoreUnit\":\"us/op\"}}";
+	}
+}
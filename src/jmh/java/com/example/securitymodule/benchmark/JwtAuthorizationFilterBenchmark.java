@@ -0,0 +1,67 @@
+package com.example.securitymodule.benchmark;
+
+import com.example.securitymodule.filter.JwtAuthorizationFilter;
+import com.example.securitymodule.service.TokenRevocationService;
+import com.example.securitymodule.utility.JWTTokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.FilterChain;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.securitymodule.constant.SecurityConstant.TOKEN_PREFIX;
+
+//  The whole per-request cost of the filter: header parsing, verification, revocation check and the security context.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JwtAuthorizationFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    @Param({"true", "false"})
+    private boolean cacheEnabled;
+
+    private JwtAuthorizationFilter jwtAuthorizationFilter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() throws Exception {
+        JWTTokenProvider jwtTokenProvider = BenchmarkFixtures.tokenProvider(true, false, cacheEnabled);
+        TokenRevocationService tokenRevocationService = new TokenRevocationService(null, false, 100000);
+        tokenRevocationService.revokeUser("someone-else"); // A non-empty deny list, like in production.
+        jwtAuthorizationFilter = new JwtAuthorizationFilter(jwtTokenProvider, tokenRevocationService);
+
+        request = new MockHttpServletRequest("GET", "/user/list");
+        request.setServletPath("/user/list");
+        request.addHeader(HttpHeaders.AUTHORIZATION, TOKEN_PREFIX + jwtTokenProvider.generateJwtAccessToken(BenchmarkFixtures.userPrincipal()));
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        try {
+            jwtAuthorizationFilter.doFilter(request, response, NO_OP_CHAIN);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext(); // Every request starts with an empty context.
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.securitymodule.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+//  A benchmark that silently rejects its token would measure the cheap failure path instead.
+class JwtAuthorizationFilterBenchmarkTests {
+
+	@Test
+	void everyInvocationAuthenticates() throws Exception {
+
+		for(boolean cacheEnabled : new boolean[]{true, false}){
+			JwtAuthorizationFilterBenchmark benchmark = new JwtAuthorizationFilterBenchmark();
+			ReflectionTestUtils.setField(benchmark, "cacheEnabled", cacheEnabled);
+			benchmark.setUp();
+
+			for(int invocation = 0; invocation < 3; invocation++){
+				Authentication authentication = (Authentication) benchmark.doFilter();
+				assertNotNull(authentication);
+				assertEquals(BenchmarkFixtures.USERNAME, authentication.getName());
+			}
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.example.securitymodule.benchmark;
+
+import com.example.securitymodule.domain.UserPrincipal;
+import com.example.securitymodule.utility.JWTTokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+//  Token minting, done on every login and every refresh.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JwtSigningBenchmark {
+
+    @Param({"true", "false"})
+    private boolean fastSigning;
+
+    @Param({"false", "true"})
+    private boolean authorityBitmask;
+
+    private JWTTokenProvider jwtTokenProvider;
+    private UserPrincipal userPrincipal;
+    private String familyId;
+
+    @Setup
+    public void setUp() throws Exception {
+        jwtTokenProvider = BenchmarkFixtures.tokenProvider(fastSigning, authorityBitmask, true);
+        userPrincipal = BenchmarkFixtures.userPrincipal();
+        familyId = UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtTokenProvider.generateJwtAccessToken(userPrincipal);
+    }
+
+    @Benchmark
+    public String generateRefreshToken() {
+        return jwtTokenProvider.generateJwtRefreshToken(userPrincipal, familyId, familyId);
+    }
+}
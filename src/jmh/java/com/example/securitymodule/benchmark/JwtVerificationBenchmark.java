@@ -0,0 +1,64 @@
+package com.example.securitymodule.benchmark;
+
+import com.example.securitymodule.domain.VerifiedToken;
+import com.example.securitymodule.utility.JWTTokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//  Token checks, done on every authenticated request. The tokens rotate, so the cache sees a realistic working set.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JwtVerificationBenchmark {
+
+    private static final int TOKENS = 1024;
+
+    @Param({"true", "false"})
+    private boolean cacheEnabled;
+
+    @Param({"false", "true"})
+    private boolean authorityBitmask;
+
+    private JWTTokenProvider jwtTokenProvider;
+    private final String[] tokens = new String[TOKENS];
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        jwtTokenProvider = BenchmarkFixtures.tokenProvider(true, authorityBitmask, cacheEnabled);
+
+        for(int i = 0; i < TOKENS; i++){
+            tokens[i] = jwtTokenProvider.generateJwtAccessToken(BenchmarkFixtures.userPrincipal());
+        }
+    }
+
+    @Benchmark
+    public VerifiedToken verifyToken() {
+        return jwtTokenProvider.verifyToken(nextToken());
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> getAuthorities() {
+        return jwtTokenProvider.getAuthorities(nextToken());
+    }
+
+    private String nextToken() {
+        return tokens[next++ & (TOKENS - 1)];
+    }
+}
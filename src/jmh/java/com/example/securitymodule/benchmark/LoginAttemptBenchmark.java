@@ -0,0 +1,65 @@
+package com.example.securitymodule.benchmark;
+
+import com.example.securitymodule.service.InMemoryLoginAttemptStore;
+import com.example.securitymodule.service.LoginAttemptService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//  Brute-force protection under contention: most threads check a user, a few record failed logins at the same time.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LoginAttemptBenchmark {
+
+    @Param({"50", "100000"}) // A few users, and a credential stuffing run over many of them.
+    private int users;
+
+    private LoginAttemptService loginAttemptService;
+    private String[] usernames;
+
+    @Setup
+    public void setUp() {
+        loginAttemptService = new LoginAttemptService(new InMemoryLoginAttemptStore(5, 15 * 60 * 1000, 500000, new SimpleMeterRegistry()), 5);
+        usernames = new String[users];
+
+        for(int i = 0; i < users; i++){
+            usernames[i] = "user" + i;
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(6)
+    public boolean hasExceededMaxAttempts() {
+        return loginAttemptService.hasExceededMaxAttempts(randomUsername());
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public void addUserToLoginAttemptCache() {
+        loginAttemptService.addUserToLoginAttemptCache(randomUsername());
+    }
+
+    private String randomUsername() {
+        return usernames[ThreadLocalRandom.current().nextInt(users)];
+    }
+}
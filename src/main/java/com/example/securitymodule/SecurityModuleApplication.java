@@ -1,8 +1,11 @@
 package com.example.securitymodule;
 
+import com.example.securitymodule.utility.BCryptCalibration;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import java.io.File;
@@ -10,6 +13,7 @@ import java.io.File;
 import static com.example.securitymodule.constant.FileConstant.USER_FOLDER;
 
 @SpringBootApplication
+@EnableScheduling // The periodic flushes, syncs, sweeps and rebuilds of the services, and the JWT key rotation.
 public class SecurityModuleApplication {
 
 	public static void main(String[] args) {
@@ -19,8 +23,16 @@ public class SecurityModuleApplication {
 	}
 
 	@Bean
-	public BCryptPasswordEncoder bCryptPasswordEncoder(){
-		return new BCryptPasswordEncoder();
+	public BCryptPasswordEncoder bCryptPasswordEncoder(@Value("${security.password-hashing.strength:0}") int strength,
+													   @Value("${security.password-hashing.latency-budget:250}") long latencyBudget,
+													   @Value("${security.password-hashing.minimum-strength:10}") int minimumStrength,
+													   @Value("${security.password-hashing.maximum-strength:14}") int maximumStrength){
+
+		if(strength <= 0){ // No fixed strength, so measure this host. Hashes with a lower cost are upgraded on login.
+			strength = BCryptCalibration.calibrateStrength(latencyBudget, minimumStrength, maximumStrength);
+		}
+
+		return new BCryptPasswordEncoder(strength);
 	}
 
 }
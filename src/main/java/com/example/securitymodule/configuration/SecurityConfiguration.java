@@ -1,5 +1,6 @@
 package com.example.securitymodule.configuration;
 
+import com.example.securitymodule.constant.Authority;
 import com.example.securitymodule.constant.SecurityConstant;
 import com.example.securitymodule.filter.JwtAccessDeniedHandler;
 import com.example.securitymodule.filter.JwtAuthenticationEntryPoint;
@@ -53,6 +54,7 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
         http.csrf().disable().cors()
                 .and().sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 .and().authorizeRequests().antMatchers(SecurityConstant.PUBLIC_URLS).permitAll()
+                .antMatchers(SecurityConstant.INTROSPECTION_URL).hasAuthority(Authority.TOKEN_INTROSPECT)
                 .anyRequest().authenticated()
                 .and().exceptionHandling() // Adding exceptions for UNAUTHORIZED OR FORBIDDEN calls.
                 .accessDeniedHandler(jwtAccessDeniedHandler)
@@ -2,8 +2,13 @@ package com.example.securitymodule.constant;
 
 public class Authority {
 
+    public static final String TOKEN_INTROSPECT = "token:introspect";
     public static final String[] USER_AUTHORITIES = {"user:read"};
     public static final String[] MANAGER_AUTHORITIES = {"user:read", "user:update"};
     public static final String[] ADMIN_AUTHORITIES = {"user:read", "user:update", "user:create"};
     public static final String[] SUPER_ADMIN_AUTHORITIES = {"user:read", "user:update", "user:create", "user:delete"};
+    public static final String[] GATEWAY_AUTHORITIES = {TOKEN_INTROSPECT}; // API gateways only introspect tokens.
+
+    //    The position of each authority is its bit in the authority mask. Only append new authorities, never reorder them.
+    public static final String[] ALL_AUTHORITIES = {"user:read", "user:update", "user:create", "user:delete", TOKEN_INTROSPECT};
 }
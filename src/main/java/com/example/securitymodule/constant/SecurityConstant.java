@@ -11,11 +11,38 @@ public class SecurityConstant {
     public static final String WEBSITE_NAME = "VANDELAY INDUSTRIES";
     public static final String WEBSITE_ADMINISTRATION = "User Management Portal";
     public static final String AUTHORITIES = "Authorities";
+    public static final String AUTHORIZATION_VERSION = "AuthorizationVersion";
+    public static final String REFRESH_TOKEN_FAMILY = "Family";
+    public static final String AUTHORITY_MASK = "AuthorityMask"; // Compact form of "Authorities", see AuthorityBitmask.
     public static final String FORBIDDEN_MESSAGE = "You need to log in to access this page.";
     public static final String ACCESS_DENIED_MESSAGE = "You do not have permission to access this page.";
     public static final String OPTIONS_HTTP_METHOD = "OPTIONS";
-    public static final String[] PUBLIC_URLS = {"/user/login", "/user/register", "/user/token/refresh", "/console/**",
-                                                "/user/reset-password/**", "/user/image/**"};
+    public static final String HS512 = "HS512";
+    public static final String RS256 = "RS256";
+    public static final String ES256 = "ES256";
+    public static final String KEY_ROTATED = "Rotated JWT signing key, new kid: ";
+    public static final String NO_SIGNING_KEY = "No signing key found in key store: ";
+    public static final String KEY_TYPE_NOT_VALID = "Key %s is a %s key and cannot sign %s. Remove it from the key store or change jwt.algorithm.";
+    public static final String KEY_STORE_REQUIRED = "Asymmetric signing needs a key store shared by every node, set jwt.key-ring.key-store. Algorithm: ";
+    public static final String GENERATED_SIGNING_KEYS = "Signing with keys generated on this node. Its tokens fail on other nodes and after a restart, only use jwt.key-ring.generate-keys for development.";
+    public static final String TOKEN_REVOKED = "Revoked token: ";
+    public static final String USER_TOKENS_REVOKED = "Revoked all tokens of user: ";
+    public static final String REFRESH_TOKEN_REUSED = "Refresh token reused, revoked all tokens of user: ";
+    public static final String PASSWORD_HASHING_BUSY = "Password hashing queue is full, rejected a request. Queued: ";
+    public static final String BCRYPT_CALIBRATED = "Calibrated BCrypt strength: ";
+    public static final String BCRYPT_OVER_BUDGET = "BCrypt is over the latency budget even at the minimum strength: ";
+    public static final String SERVER_BUSY = "The server is busy, please try again later.";
+    public static final String USERS_EXPORTED = "Users exported: ";
+    public static final String USERS_IMPORTED = "Users imported: ";
+    public static final String AUTHORITY_MASKS_MIGRATED = "Authority masks filled in from the role: ";
+    public static final String AVAILABILITY_INDEX_BUILT = "Username and email availability index built: ";
+    public static final String TOO_MANY_LOGIN_ATTEMPTS = "Too many login attempts, please try again later.";
+    public static final String LOGIN_ATTEMPTS_FLUSH_RETRIED = "Login attempt buckets were inserted concurrently by another node, retrying flush. Attempt: ";
+    public static final String INTROSPECTION_TIMED_OUT = "Timed out";
+    public static final String JWKS_URL = "/.well-known/jwks.json";
+    public static final String INTROSPECTION_URL = "/user/token/introspect"; // Needs Authority.TOKEN_INTROSPECT.
+    public static final String[] PUBLIC_URLS = {"/user/login", "/user/register", "/user/availability", "/user/token/refresh", "/console/**",
+                                                "/user/reset-password/**", "/user/image/**", JWKS_URL};
 
 //    public static final String[] PUBLIC_URLS = {"**"}; // Allow all URLs (for testing purposes).
 }
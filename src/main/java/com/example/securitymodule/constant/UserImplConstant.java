@@ -9,5 +9,22 @@ public class UserImplConstant {
     public static final String NO_USER_FOUND_BY_EMAIL = "No user found by email: ";
     public static final String EMAIL_NOT_VALID = "Email address not valid.";
     public static final String USERNAME_NOT_VALID = "Username not valid.";
+    public static final String BAD_CREDENTIALS = "Bad credentials";
+    public static final String PASSWORD_HASH_UPGRADED = "Password hash upgraded for user: ";
+    public static final String USERNAME_UNIQUE_CONSTRAINT = "UK_USER_USERNAME";
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "UK_USER_EMAIL";
+    public static final String CURSOR_NOT_VALID = "Cursor not valid.";
+    public static final String ROLE_NOT_VALID = "Role not valid.";
+    public static final String BULK_UPDATE_WITHOUT_USERS = "Select the users with either ids or a filter.";
+    public static final String BULK_UPDATE_WITHOUT_CHANGES = "Nothing to change, set a role, locked or active.";
+    public static final String BULK_UPDATE_TOO_MANY_IDS = "Too many ids, use a filter or split the request. The maximum is: ";
+    public static final String USERS_UPDATED_IN_BULK = "Users updated in bulk: ";
+    public static final String ROW_NOT_VALID = "Row not valid.";
+    public static final String FILE_FORMAT_NOT_VALID = "File format not valid, use ndjson or csv.";
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAXIMUM_PAGE_SIZE = 100;
+    public static final int BULK_UPDATE_CHUNK_SIZE = 500; // Users per UPDATE statement and transaction.
+    public static final int BULK_UPDATE_MAXIMUM_IDS = 100000;
+    public static final int USER_LIST_LIMIT = 1000; // GET /user/list returns at most this many users, the rest through the cursor.
 
 }
@@ -0,0 +1,14 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class AuthorizationSnapshot { // What a token refresh needs to know about a user, at a given authorization version.
+
+    private final long authorizationVersion;
+    private final String[] authorities;
+    private final boolean active;
+    private final boolean notLocked;
+}
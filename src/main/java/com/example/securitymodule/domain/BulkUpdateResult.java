@@ -0,0 +1,13 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BulkUpdateResult {
+
+    private final long matched; // Users selected by the ids or the filter.
+    private final long updated; // Those that actually changed. The others were left alone, their tokens too.
+    private final long millis;
+}
@@ -0,0 +1,29 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUserUpdate { // Either "ids" or "filter" selects the users, the fields left null are not changed.
+
+    private List<Long> ids;
+    private Filter filter;
+    private String role; // The authorities follow from it.
+    private Boolean locked;
+    private Boolean active;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Filter { // Like /user/page. An empty filter selects every user.
+
+        private String role;
+        private Boolean active;
+        private Boolean locked;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class HeavyHitter { // One of the top sources of failed logins. Counts are estimates that decay over time.
+
+    private final String key; // A client address or a username.
+    private final int failures;
+    private final int successes;
+}
@@ -0,0 +1,13 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ImportError {
+
+    private final long line; // 1-based line of the uploaded file, the CSV header included.
+    private final String username; // Null when the row could not be read.
+    private final String message;
+}
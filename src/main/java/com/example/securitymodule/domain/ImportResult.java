@@ -0,0 +1,17 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class ImportResult {
+
+    private final long imported;
+    private final long failed;
+    private final long millis;
+    private final long rowsPerSecond; // Rows read, imported or not.
+    private final List<ImportError> errors; // The first ones only, "failed" counts them all.
+}
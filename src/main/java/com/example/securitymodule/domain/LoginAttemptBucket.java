@@ -0,0 +1,41 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+//  Failed logins of one user within one time bucket, shared by every node. Written in batches by JdbcLoginAttemptStore through JDBC,
+//  the entity is here so the table is created together with the rest of the schema.
+@Entity(name = "LoginAttemptBucket")
+@Table(name = "LOGIN_ATTEMPT_BUCKET", indexes = @Index(name = "IDX_LOGIN_ATTEMPT_BUCKET_BUCKET", columnList = "bucket"))
+@IdClass(LoginAttemptBucket.Key.class)
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class LoginAttemptBucket {
+
+    @Id
+    @Column(nullable = false, updatable = false)
+    private String username;
+    @Id
+    @Column(nullable = false, updatable = false)
+    private long bucket; // Time divided by the bucket size.
+    private int attempts;
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Data
+    public static class Key implements Serializable {
+
+        private String username;
+        private long bucket;
+    }
+}
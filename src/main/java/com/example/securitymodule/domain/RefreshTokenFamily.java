@@ -0,0 +1,30 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+//  One row per chain of rotated refresh tokens. Written and read by RefreshTokenFamilyService through JDBC,
+//  the entity is here so the table is created together with the rest of the schema.
+@Entity(name = "RefreshTokenFamily")
+@Table(name = "REFRESH_TOKEN_FAMILY", indexes = @Index(name = "IDX_REFRESH_TOKEN_FAMILY_EXPIRES_AT", columnList = "expiresAt"))
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class RefreshTokenFamily {
+
+    @Id
+    @Column(length = 36, nullable = false, updatable = false)
+    private String familyId;
+    @Column(nullable = false)
+    private String username;
+    @Column(length = 36, nullable = false)
+    private String tokenId; // The only refresh token of the family that may still be used.
+    private long expiresAt;
+}
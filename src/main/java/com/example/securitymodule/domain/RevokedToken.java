@@ -0,0 +1,29 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+//  One row per revoked token. Written and read by TokenRevocationService through JDBC,
+//  the entity is here so the table is created together with the rest of the schema.
+@Entity(name = "RevokedToken")
+@Table(name = "REVOKED_TOKEN", indexes = {
+        @Index(name = "IDX_REVOKED_TOKEN_REVOKED_AT", columnList = "revokedAt"),
+        @Index(name = "IDX_REVOKED_TOKEN_EXPIRES_AT", columnList = "expiresAt")})
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class RevokedToken {
+
+    @Id
+    @Column(nullable = false, updatable = false)
+    private String tokenId; // The "jti" claim.
+    private long revokedAt; // Other nodes read the revocations newer than their last sync.
+    private long expiresAt; // The token's own expiration, the row is useless after it.
+}
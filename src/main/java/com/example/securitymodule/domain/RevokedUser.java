@@ -0,0 +1,29 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+//  One row per user whose tokens were all revoked. Written and read by TokenRevocationService through JDBC,
+//  the entity is here so the table is created together with the rest of the schema.
+@Entity(name = "RevokedUser")
+@Table(name = "REVOKED_USER", indexes = {
+        @Index(name = "IDX_REVOKED_USER_REVOKED_UNTIL", columnList = "revokedUntil"),
+        @Index(name = "IDX_REVOKED_USER_EXPIRES_AT", columnList = "expiresAt")})
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class RevokedUser {
+
+    @Id
+    @Column(nullable = false, updatable = false)
+    private String username;
+    private long revokedUntil; // Tokens issued before this are revoked.
+    private long expiresAt; // When the last of those tokens expires, the row is useless after it.
+}
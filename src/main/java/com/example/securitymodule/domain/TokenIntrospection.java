@@ -0,0 +1,28 @@
+package com.example.securitymodule.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL) // Inactive tokens are just {"index":..,"active":false}.
+public class TokenIntrospection {
+
+    private final int index; // Position of the token in the request, results are streamed in completion order.
+    private final boolean active;
+    private final String sub;
+    private final List<String> authorities;
+    private final Long exp; // Seconds, like the "exp" claim.
+    private final String error; // Only when the token could not be checked in time, it may still be active.
+
+    public static TokenIntrospection inactive(int index) {
+        return new TokenIntrospection(index, false, null, null, null, null);
+    }
+
+    public static TokenIntrospection failed(int index, String error) {
+        return new TokenIntrospection(index, false, null, null, null, error);
+    }
+}
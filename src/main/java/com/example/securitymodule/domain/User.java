@@ -1,5 +1,7 @@
 package com.example.securitymodule.domain;
 
+import com.example.securitymodule.utility.AuthorityBitmask;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -10,8 +12,17 @@ import javax.persistence.*;
 import java.io.Serializable;
 import java.util.Date;
 
+import static com.example.securitymodule.constant.UserImplConstant.EMAIL_UNIQUE_CONSTRAINT;
+import static com.example.securitymodule.constant.UserImplConstant.USERNAME_UNIQUE_CONSTRAINT;
+
 @Entity(name = "User")
-@Table(name = "USER")
+@Table(name = "USER",
+       uniqueConstraints = { // Also the indexes for lookups by username and email.
+               @UniqueConstraint(name = USERNAME_UNIQUE_CONSTRAINT, columnNames = "username"),
+               @UniqueConstraint(name = EMAIL_UNIQUE_CONSTRAINT, columnNames = "email")},
+       indexes = {
+               @Index(name = "IDX_USER_ROLE_ID", columnList = "role, id"), // Listing by role seeks by id within the role.
+               @Index(name = "IDX_USER_AUTHORITY_MASK_ID", columnList = "authority_mask, id")})
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
@@ -19,7 +30,8 @@ import java.util.Date;
 public class User implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_sequence")
+    @SequenceGenerator(name = "user_sequence", sequenceName = "USER_SEQUENCE", allocationSize = 50) // One sequence call per 50 inserts, and JDBC batching stays possible.
     @Column(nullable = false, updatable = false)
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private Long id;
@@ -33,11 +45,37 @@ public class User implements Serializable {
     @Column(nullable = false)
     private String email;
     private String profileImageUrl;
+    @Column(updatable = false) // Written in batches by LastLoginService, never by an entity update.
     private Date lastLoginDate;
+    @Column(updatable = false)
     private Date lastLoginDateDisplay;
     private Date joinDate;
     private String role;
-    private String[] authorities;
+    @Column(name = "authority_mask", nullable = false, columnDefinition = "integer default 0") // Existing rows are filled by AuthorityMaskMigration.
+    @JsonIgnore
+    private int authorityMask; // One bit per authority of Authority.ALL_AUTHORITIES, see AuthorityBitmask. No serialized array to read.
     private boolean isActive;
     private boolean isNotLocked;
+    @JsonIgnore
+    private long authorizationVersion; // Bumped whenever role, authorities, lock or active state change.
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    @JsonIgnore
+    private long version; // Optimistic lock: saving a copy read before another write fails, instead of undoing that write.
+
+    public String[] getAuthorities() {
+        return AuthorityBitmask.toAuthorityNames(authorityMask);
+    }
+
+    public void setAuthorities(String[] authorities) {
+        this.authorityMask = AuthorityBitmask.toKnownMask(authorities);
+    }
+
+    public static class UserBuilder { // The rest is generated by Lombok.
+
+        public UserBuilder authorities(String[] authorities) {
+            this.authorityMask = AuthorityBitmask.toKnownMask(authorities);
+            return this;
+        }
+    }
 }
@@ -0,0 +1,14 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class UserPage {
+
+    private final List<UserSummary> users; // Ordered by id.
+    private final String nextCursor; // Pass it back to get the next page. Null on the last page.
+}
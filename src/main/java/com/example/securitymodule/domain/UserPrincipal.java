@@ -1,13 +1,11 @@
 package com.example.securitymodule.domain;
 
+import com.example.securitymodule.utility.AuthorityBitmask;
 import lombok.AllArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @AllArgsConstructor
 public class UserPrincipal implements UserDetails {
@@ -16,10 +14,7 @@ public class UserPrincipal implements UserDetails {
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Stream
-                .of(user.getAuthorities())
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+        return AuthorityBitmask.toAuthorities(user.getAuthorityMask()); // Shared, pre-built list. No allocation per call.
     }
 
     @Override
@@ -32,6 +27,10 @@ public class UserPrincipal implements UserDetails {
         return user.getUsername();
     }
 
+    public long getAuthorizationVersion() {
+        return user.getAuthorizationVersion();
+    }
+
     @Override
     public boolean isAccountNonExpired() {
         return true;
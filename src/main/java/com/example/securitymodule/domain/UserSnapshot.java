@@ -0,0 +1,94 @@
+package com.example.securitymodule.domain;
+
+import java.util.Date;
+
+//  An immutable copy of a user, as kept by the user cache. Never a managed entity, so nothing cached can be flushed
+//  back to the database by accident, and every reader gets its own User to change.
+public final class UserSnapshot {
+
+    private final Long id;
+    private final String userId;
+    private final String firstName;
+    private final String lastName;
+    private final String username;
+    private final String password;
+    private final String email;
+    private final String profileImageUrl;
+    private final Long lastLoginDate; // Dates as epoch millis: smaller, and immutable.
+    private final Long lastLoginDateDisplay;
+    private final Long joinDate;
+    private final String role;
+    private final int authorityMask;
+    private final boolean isActive;
+    private final boolean isNotLocked;
+    private final long authorizationVersion;
+    private final long version;
+
+    private UserSnapshot(User user) {
+        this.id = user.getId();
+        this.userId = user.getUserId();
+        this.firstName = user.getFirstName();
+        this.lastName = user.getLastName();
+        this.username = user.getUsername();
+        this.password = user.getPassword();
+        this.email = user.getEmail();
+        this.profileImageUrl = user.getProfileImageUrl();
+        this.lastLoginDate = toMillis(user.getLastLoginDate());
+        this.lastLoginDateDisplay = toMillis(user.getLastLoginDateDisplay());
+        this.joinDate = toMillis(user.getJoinDate());
+        this.role = user.getRole();
+        this.authorityMask = user.getAuthorityMask();
+        this.isActive = user.isActive();
+        this.isNotLocked = user.isNotLocked();
+        this.authorizationVersion = user.getAuthorizationVersion();
+        this.version = user.getVersion();
+    }
+
+    public static UserSnapshot of(User user) {
+        return new UserSnapshot(user);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    //    A new, detached User. Saving it merges it like any other detached entity, and fails if the row changed since.
+    public User toUser() {
+
+        return User.builder()
+                   .id(id)
+                   .userId(userId)
+                   .firstName(firstName)
+                   .lastName(lastName)
+                   .username(username)
+                   .password(password)
+                   .email(email)
+                   .profileImageUrl(profileImageUrl)
+                   .lastLoginDate(toDate(lastLoginDate))
+                   .lastLoginDateDisplay(toDate(lastLoginDateDisplay))
+                   .joinDate(toDate(joinDate))
+                   .role(role)
+                   .authorityMask(authorityMask)
+                   .isActive(isActive)
+                   .isNotLocked(isNotLocked)
+                   .authorizationVersion(authorizationVersion)
+                   .version(version)
+                   .build();
+    }
+
+    private static Long toMillis(Date date) {
+        return date == null ? null : date.getTime();
+    }
+
+    private static Date toDate(Long millis) {
+        return millis == null ? null : new Date(millis);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.securitymodule.domain;
+
+import com.example.securitymodule.utility.AuthorityBitmask;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter
+@AllArgsConstructor
+public class UserSummary { // The columns a user listing renders, selected straight into this class instead of loading User entities.
+
+    @JsonIgnore
+    private final Long id; // Only used for the cursor, hidden like User.id.
+    private final String userId;
+    private final String firstName;
+    private final String lastName;
+    private final String username;
+    private final String email;
+    private final String profileImageUrl;
+    @Setter
+    private Date lastLoginDate; // Set from pending logins, see LastLoginService.
+    @Setter
+    private Date lastLoginDateDisplay;
+    private final Date joinDate;
+    private final String role;
+    @JsonIgnore
+    private final int authorityMask;
+    private final boolean isActive;
+    private final boolean isNotLocked;
+
+    public String[] getAuthorities() {
+        return AuthorityBitmask.toAuthorityNames(authorityMask);
+    }
+}
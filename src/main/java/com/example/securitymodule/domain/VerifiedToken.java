@@ -0,0 +1,25 @@
+package com.example.securitymodule.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Date;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class VerifiedToken { // The result of a single signature check: everything the filter needs from the token.
+
+    private final String tokenId; // The "jti" claim, used for revocation.
+    private final String subject;
+    private final List<GrantedAuthority> authorities;
+    private final Date issuedAt;
+    private final Date expiresAt;
+    private final Long authorizationVersion; // Only refresh tokens carry it.
+    private final String familyId; // Only refresh tokens carry it.
+
+    public boolean isRefreshToken() {
+        return authorizationVersion != null;
+    }
+}
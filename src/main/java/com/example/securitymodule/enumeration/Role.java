@@ -7,7 +7,8 @@ public enum Role {
     ROLE_USER(USER_AUTHORITIES),
     ROLE_MANAGER(MANAGER_AUTHORITIES),
     ROLE_ADMIN(ADMIN_AUTHORITIES),
-    ROLE_SUPER_ADMIN(SUPER_ADMIN_AUTHORITIES);
+    ROLE_SUPER_ADMIN(SUPER_ADMIN_AUTHORITIES),
+    ROLE_GATEWAY(GATEWAY_AUTHORITIES);
 
     private String[] authorities;
 
@@ -0,0 +1,18 @@
+package com.example.securitymodule.enumeration;
+
+public enum UserFileFormat {
+
+    NDJSON("application/x-ndjson"), // One JSON object per line, the same fields as /user/list.
+                                    // CSV files start with a header line naming those fields.
+    CSV("text/csv");
+
+    private final String contentType;
+
+    UserFileFormat(String contentType){
+        this.contentType = contentType;
+    }
+
+    public String getContentType(){
+        return contentType;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.securitymodule.exception.domain;
+
+public class BatchTooLargeException extends Exception{
+
+    public BatchTooLargeException(String message) {
+        super(message);
+    }
+}
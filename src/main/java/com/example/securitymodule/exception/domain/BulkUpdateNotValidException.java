@@ -0,0 +1,8 @@
+package com.example.securitymodule.exception.domain;
+
+public class BulkUpdateNotValidException extends Exception{
+
+    public BulkUpdateNotValidException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.securitymodule.exception.domain;
+
+public class CursorNotValidException extends Exception{
+
+    public CursorNotValidException(String message) {
+        super(message);
+    }
+}
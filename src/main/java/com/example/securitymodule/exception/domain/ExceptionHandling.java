@@ -4,9 +4,11 @@ import com.auth0.jwt.exceptions.TokenExpiredException;
 import com.example.securitymodule.domain.HttpResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.web.servlet.error.ErrorController;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.LockedException;
@@ -34,6 +36,7 @@ public class ExceptionHandling implements ErrorController {
     public static final String NOT_ENOUGH_PERMISSIONS = "You do not have enough permissions.";
     public static final String USERNAME_NOT_VALID = "Username not valid.";
     public static final String EMAIL_NOT_VALID = "Email not valid.";
+    public static final String USER_CHANGED_CONCURRENTLY = "This user was changed at the same time. Please try again.";
 
     @RequestMapping("/error") // It will work only with the ErrorController Interface.
     public ResponseEntity<HttpResponse> pageNotFoundException(){
@@ -100,6 +103,50 @@ public class ExceptionHandling implements ErrorController {
         return createHttpResponse(HttpStatus.BAD_REQUEST, exception.getMessage().toUpperCase());
     }
 
+    @ExceptionHandler(BatchTooLargeException.class)
+    public ResponseEntity<HttpResponse> batchTooLargeException(BatchTooLargeException exception){
+        log.error(exception.getMessage());
+        return createHttpResponse(HttpStatus.BAD_REQUEST, exception.getMessage().toUpperCase());
+    }
+
+    @ExceptionHandler(CursorNotValidException.class)
+    public ResponseEntity<HttpResponse> cursorNotValidException(CursorNotValidException exception){
+        log.error(exception.getMessage());
+        return createHttpResponse(HttpStatus.BAD_REQUEST, exception.getMessage().toUpperCase());
+    }
+
+    @ExceptionHandler(FileFormatNotValidException.class)
+    public ResponseEntity<HttpResponse> fileFormatNotValidException(FileFormatNotValidException exception){
+        log.error(exception.getMessage());
+        return createHttpResponse(HttpStatus.BAD_REQUEST, exception.getMessage().toUpperCase());
+    }
+
+    @ExceptionHandler(BulkUpdateNotValidException.class)
+    public ResponseEntity<HttpResponse> bulkUpdateNotValidException(BulkUpdateNotValidException exception){
+        log.error(exception.getMessage());
+        return createHttpResponse(HttpStatus.BAD_REQUEST, exception.getMessage().toUpperCase());
+    }
+
+    @ExceptionHandler(ServerBusyException.class)
+    public ResponseEntity<HttpResponse> serverBusyException(ServerBusyException exception){
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds())); // Tells well-behaved clients when to come back.
+        return createHttpResponse(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage(), headers);
+    }
+
+    @ExceptionHandler(LoginThrottledException.class)
+    public ResponseEntity<HttpResponse> loginThrottledException(LoginThrottledException exception){
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()));
+        return createHttpResponse(HttpStatus.TOO_MANY_REQUESTS, exception.getMessage(), headers);
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<HttpResponse> optimisticLockingFailureException(ObjectOptimisticLockingFailureException exception){
+        log.error(exception.getMessage());
+        return createHttpResponse(HttpStatus.CONFLICT, USER_CHANGED_CONCURRENTLY);
+    }
+
     @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
     public ResponseEntity<HttpResponse> methodNotAllowedException(HttpRequestMethodNotSupportedException exception){
         log.error(exception.getMessage());
@@ -129,6 +176,10 @@ public class ExceptionHandling implements ErrorController {
     }
 
     private ResponseEntity<HttpResponse> createHttpResponse(HttpStatus httpStatus, String message){
+        return createHttpResponse(httpStatus, message, new HttpHeaders());
+    }
+
+    private ResponseEntity<HttpResponse> createHttpResponse(HttpStatus httpStatus, String message, HttpHeaders headers){
 
         HttpResponse httpResponse = new HttpResponse(
                 httpStatus.value(),
@@ -136,6 +187,6 @@ public class ExceptionHandling implements ErrorController {
                 httpStatus.getReasonPhrase().toUpperCase(),
                 message.toUpperCase());
 
-        return new ResponseEntity<>(httpResponse,httpStatus);
+        return new ResponseEntity<>(httpResponse, headers, httpStatus);
     }
 }
@@ -0,0 +1,8 @@
+package com.example.securitymodule.exception.domain;
+
+public class FileFormatNotValidException extends Exception{
+
+    public FileFormatNotValidException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.securitymodule.exception.domain;
+
+public class LoginThrottledException extends Exception{
+
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
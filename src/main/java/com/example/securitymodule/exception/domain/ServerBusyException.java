@@ -0,0 +1,15 @@
+package com.example.securitymodule.exception.domain;
+
+public class ServerBusyException extends Exception{
+
+    private final long retryAfterSeconds;
+
+    public ServerBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
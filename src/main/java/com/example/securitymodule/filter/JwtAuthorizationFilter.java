@@ -1,13 +1,14 @@
 package com.example.securitymodule.filter;
 
 import static com.example.securitymodule.constant.SecurityConstant.*;
+import com.example.securitymodule.domain.VerifiedToken;
+import com.example.securitymodule.service.TokenRevocationService;
 import com.example.securitymodule.utility.JWTTokenProvider;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -17,7 +18,6 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.List;
 
 @Component
 @AllArgsConstructor
@@ -26,6 +26,7 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter { // This  will
 
     //  Token Provider
     private JWTTokenProvider jwtTokenProvider;
+    private TokenRevocationService tokenRevocationService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -48,13 +49,15 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter { // This  will
             }
 
             String token = authorizationHeader.substring(TOKEN_PREFIX.length()); // Remove "Bearer" from token.
-            String username = jwtTokenProvider.getSubject(token); // Get the username.
+            VerifiedToken verifiedToken = jwtTokenProvider.verifyToken(token); // Check the signature only once, then read everything from the result.
 
-            if(jwtTokenProvider.isTokenValid(username,token) && // Check if the token is valid.
+            if(jwtTokenProvider.isTokenValid(verifiedToken) && // Check if the token is valid.
+                    !verifiedToken.isRefreshToken() && // Refresh tokens only get new tokens, on the refresh endpoint.
+                    !tokenRevocationService.isRevoked(verifiedToken) && // Check that an admin did not revoke it.
                     SecurityContextHolder.getContext().getAuthentication() == null){ // Check the context to see if the user is already authenticated.
 
-                List<GrantedAuthority> authorities = jwtTokenProvider.getAuthorities(token);
-                Authentication authentication = jwtTokenProvider.getAuthentication(username, authorities, request);
+                Authentication authentication = jwtTokenProvider.getAuthentication(
+                        verifiedToken.getSubject(), verifiedToken.getAuthorities(), request);
                 SecurityContextHolder.getContext().setAuthentication(authentication); // Authenticate the user.
             } else{
                 SecurityContextHolder.clearContext();
@@ -1,10 +1,12 @@
 package com.example.securitymodule.listener;
 
+import com.example.securitymodule.service.HeavyHitterService;
 import com.example.securitymodule.service.LoginAttemptService;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -13,6 +15,8 @@ public class AuthenticationFailureListener {
 
     @Autowired
     private LoginAttemptService loginAttemptService;
+    @Autowired
+    private HeavyHitterService heavyHitterService;
 
     @EventListener
     public void onAuthenticationFailure(AuthenticationFailureBadCredentialsEvent event){
@@ -22,6 +26,11 @@ public class AuthenticationFailureListener {
         if(principal instanceof String){
             String username = (String) event.getAuthentication().getPrincipal(); // Double-check the principal.
             loginAttemptService.addUserToLoginAttemptCache(username);
+            heavyHitterService.recordFailure(remoteAddress(event.getAuthentication().getDetails()), username);
         }
     }
+
+    private String remoteAddress(Object details) { // Set by UserResource.login on the request thread.
+        return details instanceof WebAuthenticationDetails ? ((WebAuthenticationDetails) details).getRemoteAddress() : null;
+    }
 }
@@ -2,11 +2,13 @@ package com.example.securitymodule.listener;
 
 import com.example.securitymodule.domain.User;
 import com.example.securitymodule.domain.UserPrincipal;
+import com.example.securitymodule.service.HeavyHitterService;
 import com.example.securitymodule.service.LoginAttemptService;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -15,6 +17,8 @@ public class AuthenticationSuccessListener {
 
     @Autowired
     private LoginAttemptService loginAttemptService;
+    @Autowired
+    private HeavyHitterService heavyHitterService;
 
     @EventListener
     public void onAuthenticationSuccess(AuthenticationSuccessEvent event){
@@ -24,6 +28,11 @@ public class AuthenticationSuccessListener {
         if(principal instanceof UserPrincipal){
             UserPrincipal userPrincipal = (UserPrincipal) event.getAuthentication().getPrincipal();
             loginAttemptService.evictUserFromLoginAttemptCache(userPrincipal.getUsername());
+            heavyHitterService.recordSuccess(remoteAddress(event.getAuthentication().getDetails()), userPrincipal.getUsername());
         }
     }
+
+    private String remoteAddress(Object details) { // Set by UserResource.login on the request thread.
+        return details instanceof WebAuthenticationDetails ? ((WebAuthenticationDetails) details).getRemoteAddress() : null;
+    }
 }
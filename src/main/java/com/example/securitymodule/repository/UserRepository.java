@@ -1,12 +1,84 @@
 package com.example.securitymodule.repository;
 
 import com.example.securitymodule.domain.User;
+import com.example.securitymodule.domain.UserSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    String SELECT_USER_SUMMARY = "SELECT new com.example.securitymodule.domain.UserSummary(u.id, u.userId, u.firstName, u.lastName, " +
+                                 "u.username, u.email, u.profileImageUrl, u.lastLoginDate, u.lastLoginDateDisplay, u.joinDate, u.role, " +
+                                 "u.authorityMask, u.isActive, u.isNotLocked) FROM User u ";
+
     User findUserByUsername(String username);
     User findUserByEmail(String email);
+
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    //    Keyset pagination: seeks past the last id instead of counting an offset, so every page costs the same. Null filters match all.
+    @Query(SELECT_USER_SUMMARY +
+           "WHERE u.id > :afterId " +
+           "AND (:role IS NULL OR u.role = :role) " +
+           "AND (:active IS NULL OR u.isActive = :active) " +
+           "AND (:notLocked IS NULL OR u.isNotLocked = :notLocked) " +
+           "ORDER BY u.id")
+    List<UserSummary> findUserSummaries(@Param("afterId") long afterId,
+                                        @Param("role") String role,
+                                        @Param("active") Boolean active,
+                                        @Param("notLocked") Boolean notLocked,
+                                        Pageable pageable);
+
+    //    The same, for users holding an authority: "masks" are all the masks with its bit, see AuthorityBitmask.masksWith.
+    @Query(SELECT_USER_SUMMARY +
+           "WHERE u.id > :afterId " +
+           "AND u.authorityMask IN :masks " +
+           "AND (:role IS NULL OR u.role = :role) " +
+           "AND (:active IS NULL OR u.isActive = :active) " +
+           "AND (:notLocked IS NULL OR u.isNotLocked = :notLocked) " +
+           "ORDER BY u.id")
+    List<UserSummary> findUserSummariesByAuthority(@Param("afterId") long afterId,
+                                                   @Param("masks") Collection<Integer> masks,
+                                                   @Param("role") String role,
+                                                   @Param("active") Boolean active,
+                                                   @Param("notLocked") Boolean notLocked,
+                                                   Pageable pageable);
+
+    @Query(SELECT_USER_SUMMARY + "WHERE u.id IN :ids")
+    List<UserSummary> findUserSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    //    Set-based updates for many users at once. Each bumps the authorization version, like any change to these fields,
+    //    and the row version, so a copy of the user read before them can no longer be saved.
+    @Modifying
+    @Query("UPDATE User u SET u.role = :role, u.authorityMask = :authorityMask, u.authorizationVersion = u.authorizationVersion + 1, u.version = u.version + 1 WHERE u.id IN :ids")
+    int updateRole(@Param("ids") Collection<Long> ids, @Param("role") String role, @Param("authorityMask") int authorityMask);
+
+    //    Writes the password only, so a stale copy of the user can never overwrite the rest of the row.
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.version = u.version + 1 WHERE u.email = :email")
+    int updatePassword(@Param("email") String email, @Param("password") String password);
+
+    @Modifying
+    @Query("UPDATE User u SET u.authorityMask = :authorityMask, u.version = u.version + 1 WHERE u.role = :role AND u.authorityMask = 0")
+    int fillAuthorityMask(@Param("role") String role, @Param("authorityMask") int authorityMask);
+
+    @Modifying
+    @Query("UPDATE User u SET u.isNotLocked = :notLocked, u.authorizationVersion = u.authorizationVersion + 1, u.version = u.version + 1 WHERE u.id IN :ids")
+    int updateNotLocked(@Param("ids") Collection<Long> ids, @Param("notLocked") boolean notLocked);
+
+    @Modifying
+    @Query("UPDATE User u SET u.isActive = :active, u.authorizationVersion = u.authorizationVersion + 1, u.version = u.version + 1 WHERE u.id IN :ids")
+    int updateActive(@Param("ids") Collection<Long> ids, @Param("active") boolean active);
 }
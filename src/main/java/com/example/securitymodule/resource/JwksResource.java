@@ -0,0 +1,31 @@
+package com.example.securitymodule.resource;
+
+import com.example.securitymodule.utility.JwtKeyRing;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.securitymodule.constant.SecurityConstant.JWKS_URL;
+
+@RestController
+@AllArgsConstructor
+public class JwksResource {
+
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    //    Resource servers download our public keys from here and verify tokens locally, by "kid".
+    @GetMapping(JWKS_URL)
+    public ResponseEntity<Map<String, Object>> getJwks(){
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                .body(jwtKeyRing.getJwks());
+    }
+}
@@ -1,24 +1,45 @@
 package com.example.securitymodule.resource;
 
 import com.example.securitymodule.constant.SecurityConstant;
+import com.example.securitymodule.domain.AuthorizationSnapshot;
+import com.example.securitymodule.domain.BulkUpdateResult;
+import com.example.securitymodule.domain.BulkUserUpdate;
+import com.example.securitymodule.domain.HeavyHitter;
 import com.example.securitymodule.domain.HttpResponse;
+import com.example.securitymodule.domain.ImportResult;
 import com.example.securitymodule.domain.User;
+import com.example.securitymodule.domain.UserPage;
 import com.example.securitymodule.domain.UserPrincipal;
+import com.example.securitymodule.domain.UserSummary;
+import com.example.securitymodule.domain.VerifiedToken;
+import com.example.securitymodule.enumeration.UserFileFormat;
 import com.example.securitymodule.exception.domain.*;
+import com.example.securitymodule.service.AuthorizationVersionService;
+import com.example.securitymodule.service.HeavyHitterService;
+import com.example.securitymodule.service.LoginThrottleService;
+import com.example.securitymodule.service.RefreshTokenFamilyService;
+import com.example.securitymodule.service.TokenIntrospectionService;
+import com.example.securitymodule.service.TokenRevocationService;
+import com.example.securitymodule.service.UserAvailabilityService;
+import com.example.securitymodule.service.UserExportService;
+import com.example.securitymodule.service.UserImportService;
 import com.example.securitymodule.service.UserService;
 import com.example.securitymodule.utility.JWTTokenProvider;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.mail.MessagingException;
 import javax.servlet.http.HttpServletRequest;
@@ -26,15 +47,21 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static com.example.securitymodule.constant.FileConstant.*;
 import static com.example.securitymodule.constant.SecurityConstant.*;
+import static com.example.securitymodule.constant.UserImplConstant.FILE_FORMAT_NOT_VALID;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.MediaType.IMAGE_JPEG_VALUE;
 
@@ -46,51 +73,96 @@ public class UserResource extends ExceptionHandling {
 
     public static final String EMAIL_WITH_THE_NEW_PASSWORD_WAS_SENT_TO = "An email with the new password was sent to: ";
     public static final String USER_DELETED_SUCCESSFULLY = "User deleted successfully.";
+    public static final String TOKEN_REVOKED_SUCCESSFULLY = "Token revoked successfully.";
+    public static final String TOKEN_HAS_NO_ID = "This token has no id, revoke the user's tokens instead.";
+    public static final String USER_TOKENS_REVOKED_SUCCESSFULLY = "All tokens of the user were revoked.";
+    public static final String BATCH_TOO_LARGE = "Too many tokens in one request, the maximum is: ";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     @Autowired
     private UserService userService;
     @Autowired
-    private AuthenticationManager authenticationManager;
-    @Autowired
     private JWTTokenProvider jwtTokenProvider;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    @Autowired
+    private AuthorizationVersionService authorizationVersionService;
+    @Autowired
+    private RefreshTokenFamilyService refreshTokenFamilyService;
+    @Autowired
+    private TokenIntrospectionService tokenIntrospectionService;
+    @Autowired
+    private LoginThrottleService loginThrottleService;
+    @Autowired
+    private HeavyHitterService heavyHitterService;
+    @Autowired
+    private UserExportService userExportService;
+    @Autowired
+    private UserAvailabilityService userAvailabilityService;
+    @Autowired
+    private UserImportService userImportService;
+    @Autowired
+    private ObjectMapper objectMapper; // Shared and thread-safe, no need for a new one per request.
 
     @PostMapping("/register")
-    public ResponseEntity<User> register(@RequestBody User user)
-            throws UserNotFoundException, UsernameExistsException, EmailExistsException, MessagingException, EmailNotValidException, UsernameNotValidException {
+    public CompletableFuture<ResponseEntity<User>> register(@RequestBody User user)
+            throws UserNotFoundException, UsernameExistsException, EmailExistsException, MessagingException, EmailNotValidException, UsernameNotValidException, ServerBusyException {
+
+        return userService.register(user.getFirstName(), user.getLastName(), user.getUsername(), user.getEmail()) // Returns while BCrypt runs.
+                          .thenApply(newUser -> ResponseEntity.ok().body(newUser));
+    }
+
+    //    For signup forms. Throttled like logins, as it tells whether an account exists.
+    @GetMapping("/availability")
+    public ResponseEntity<Map<String, Boolean>> checkAvailability(@RequestParam(value = "username", required = false) String username,
+                                                                  @RequestParam(value = "email", required = false) String email,
+                                                                  HttpServletRequest request) throws LoginThrottledException {
+
+        loginThrottleService.checkLoginAttempt(request.getRemoteAddr(), null);
+        Map<String, Boolean> availability = new LinkedHashMap<>();
 
-        User newUser = userService.register(user.getFirstName(), user.getLastName(),
-                                            user.getUsername(), user.getEmail());
+        if(StringUtils.isNotBlank(username)){
+            availability.put("username", userAvailabilityService.isUsernameAvailable(username));
+        }
+        if(StringUtils.isNotBlank(email)){
+            availability.put("email", userAvailabilityService.isEmailAvailable(email));
+        }
 
-        return ResponseEntity.ok().body(newUser);
+        return ResponseEntity.ok().body(availability);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody User user) {
+    public CompletableFuture<ResponseEntity<Map<String,String>>> login(@RequestBody User user, HttpServletRequest request)
+            throws ServerBusyException, LoginThrottledException {
+
+        loginThrottleService.checkLoginAttempt(request.getRemoteAddr(), user.getUsername()); // Before BCrypt and the database. Behind a proxy, set server.forward-headers-strategy.
 
-        authenticate(user.getUsername(), user.getPassword());
+        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(user.getUsername(), user.getPassword());
+        authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request)); // The request must not be touched after this thread lets go of it.
 
-        User loginUser = userService.findUserByUsername(user.getUsername());
-        UserPrincipal userPrincipal = new UserPrincipal(loginUser);
-        Map<String,String> tokens = getJwtTokens(userPrincipal);
+        return userService.login(authenticationToken).thenApply(loginUser -> { // The request thread goes back to Tomcat while BCrypt runs.
+            authorizationVersionService.record(loginUser); // The refresh token will carry this version.
+            UserPrincipal userPrincipal = new UserPrincipal(loginUser);
+            Map<String,String> tokens = getJwtTokens(userPrincipal);
 
-        return ResponseEntity.ok().body(tokens);
+            return ResponseEntity.ok().body(tokens);
+        });
     }
 
     @PostMapping("/add")
-    public ResponseEntity<User> addNewUser(@RequestParam("firstName") String firstName,
-                                           @RequestParam("lastName") String lastName,
-                                           @RequestParam("username") String username,
-                                           @RequestParam("email") String email,
-                                           @RequestParam("role") String role,
-                                           @RequestParam("isActive") String isActive,
-                                           @RequestParam("isNotLocked") String isNotLocked,
-                                           @RequestParam(value = "profileImage", required = false) MultipartFile profileImage)
-            throws UserNotFoundException, UsernameExistsException, EmailExistsException, IOException, EmailNotValidException, UsernameNotValidException {
-
-        User newUser = userService.addNewUser(firstName, lastName, username, email, role,
-                Boolean.parseBoolean(isActive), Boolean.parseBoolean(isNotLocked), profileImage);
-
-        return ResponseEntity.ok().body(newUser);
+    public CompletableFuture<ResponseEntity<User>> addNewUser(@RequestParam("firstName") String firstName,
+                                                              @RequestParam("lastName") String lastName,
+                                                              @RequestParam("username") String username,
+                                                              @RequestParam("email") String email,
+                                                              @RequestParam("role") String role,
+                                                              @RequestParam("isActive") String isActive,
+                                                              @RequestParam("isNotLocked") String isNotLocked,
+                                                              @RequestParam(value = "profileImage", required = false) MultipartFile profileImage)
+            throws UserNotFoundException, UsernameExistsException, EmailExistsException, IOException, EmailNotValidException, UsernameNotValidException, ServerBusyException {
+
+        return userService.addNewUser(firstName, lastName, username, email, role,
+                                      Boolean.parseBoolean(isActive), Boolean.parseBoolean(isNotLocked), profileImage)
+                          .thenApply(newUser -> ResponseEntity.ok().body(newUser));
     }
 
     @PostMapping("/update")
@@ -111,6 +183,15 @@ public class UserResource extends ExceptionHandling {
         return ResponseEntity.ok().body(updatedUser);
     }
 
+    //    Locks, unlocks, (de)activates or re-roles many users in one request, e.g. {"filter": {"role": "ROLE_USER"}, "locked": true}.
+    @PostMapping("/bulk-update")
+    @PreAuthorize("hasAnyAuthority('user:delete')") // Can grant any role, so only for the highest one.
+    public ResponseEntity<BulkUpdateResult> updateUsers(@RequestBody BulkUserUpdate update) throws BulkUpdateNotValidException {
+
+        BulkUpdateResult result = userService.updateUsers(update);
+        return ResponseEntity.ok().body(result);
+    }
+
     @GetMapping("/find/{username}")
     public ResponseEntity<User> getUser(@PathVariable("username") String username){
 
@@ -118,19 +199,70 @@ public class UserResource extends ExceptionHandling {
         return ResponseEntity.ok().body(user);
     }
 
+    //    Kept for existing clients, but bounded. The header carries the cursor to continue from with /page.
     @GetMapping("/list")
-    public ResponseEntity<List<User>> getAllUsers(){
+    public ResponseEntity<List<UserSummary>> getAllUsers(){
+
+        UserPage page = userService.getUsers();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if(page.getNextCursor() != null){
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+
+        return response.body(page.getUsers());
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<UserPage> getUserPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                                @RequestParam(value = "size", required = false) Integer size,
+                                                @RequestParam(value = "role", required = false) String role,
+                                                @RequestParam(value = "authority", required = false) String authority,
+                                                @RequestParam(value = "active", required = false) Boolean active,
+                                                @RequestParam(value = "locked", required = false) Boolean locked)
+            throws CursorNotValidException {
+
+        UserPage page = userService.getUsers(cursor, size, role, authority, active, locked);
+        return ResponseEntity.ok().body(page);
+    }
+
+    //    Written on the request thread, not as a StreamingResponseBody: a large export can outlast the async request timeout.
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyAuthority('user:delete')")
+    public void exportUsers(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                            HttpServletResponse response)
+            throws FileFormatNotValidException, ServerBusyException, IOException {
+
+        UserFileFormat fileFormat = toFileFormat(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        userExportService.export(fileFormat, gzip, () -> {
+            response.setContentType(fileFormat.getContentType());
+            response.setCharacterEncoding("UTF-8");
+            if(gzip){
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return response.getOutputStream();
+        });
+    }
+
+    //    One row per user, streamed from the request body. Rows that fail are reported, the others are imported.
+    @PostMapping("/import")
+    @PreAuthorize("hasAnyAuthority('user:create')")
+    public ResponseEntity<ImportResult> importUsers(@RequestParam(value = "format", defaultValue = "csv") String format,
+                                                    HttpServletRequest request)
+            throws FileFormatNotValidException, ServerBusyException, IOException, InterruptedException {
 
-        List<User> users = userService.getUsers();
-        return ResponseEntity.ok().body(users);
+        ImportResult result = userImportService.importUsers(toFileFormat(format), request.getInputStream());
+        return ResponseEntity.ok().body(result);
     }
 
     @GetMapping("/reset-password/{email}")
-    public ResponseEntity<HttpResponse> resetPassword(@PathVariable("email") String email)
-            throws EmailNotFoundException, MessagingException {
+    public CompletableFuture<ResponseEntity<HttpResponse>> resetPassword(@PathVariable("email") String email)
+            throws EmailNotFoundException, MessagingException, ServerBusyException {
 
-        userService.resetPassword(email);
-        return response(HttpStatus.OK, EMAIL_WITH_THE_NEW_PASSWORD_WAS_SENT_TO + email);
+        return userService.resetPassword(email).thenApply(sent -> response(HttpStatus.OK, EMAIL_WITH_THE_NEW_PASSWORD_WAS_SENT_TO + email));
     }
 
     @DeleteMapping("/delete/{id}")
@@ -141,6 +273,35 @@ public class UserResource extends ExceptionHandling {
         return response(HttpStatus.NO_CONTENT, USER_DELETED_SUCCESSFULLY);
     }
 
+    @PostMapping("/revoke/token")
+    @PreAuthorize("hasAnyAuthority('user:delete')")
+    public ResponseEntity<HttpResponse> revokeToken(@RequestParam("token") String token){
+
+        VerifiedToken verifiedToken = jwtTokenProvider.verifyToken(token); // Only our own, not yet expired tokens can be revoked.
+
+        if(verifiedToken.getTokenId() == null){
+            return response(HttpStatus.BAD_REQUEST, TOKEN_HAS_NO_ID);
+        }
+
+        tokenRevocationService.revokeToken(verifiedToken.getTokenId(), verifiedToken.getExpiresAt());
+        return response(HttpStatus.OK, TOKEN_REVOKED_SUCCESSFULLY);
+    }
+
+    @PostMapping("/revoke/user/{username}")
+    @PreAuthorize("hasAnyAuthority('user:delete')")
+    public ResponseEntity<HttpResponse> revokeUserTokens(@PathVariable("username") String username){
+
+        tokenRevocationService.revokeUser(username);
+        return response(HttpStatus.OK, USER_TOKENS_REVOKED_SUCCESSFULLY);
+    }
+
+//    TOP SOURCES OF FAILED LOGINS
+    @GetMapping("/security/heavy-hitters")
+    @PreAuthorize("hasAnyAuthority('user:delete')")
+    public ResponseEntity<Map<String, List<HeavyHitter>>> getHeavyHitters(){
+        return ResponseEntity.ok().body(heavyHitterService.getTopOffenders());
+    }
+
 //    UPDATE PROFILE PICTURE
     @PostMapping("/update-profile-image")
     public ResponseEntity<User> updateProfileImage(@RequestParam("username") String username,
@@ -184,30 +345,102 @@ public class UserResource extends ExceptionHandling {
 
         String authorizationHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
 
-        if(authorizationHeader != null || authorizationHeader.startsWith(TOKEN_PREFIX)){
+        if(authorizationHeader != null && authorizationHeader.startsWith(TOKEN_PREFIX)){
                 String refresh_token = authorizationHeader.substring(TOKEN_PREFIX.length()); // Remove "Bearer" from token.
-                String username = jwtTokenProvider.getSubject(refresh_token); // Get the username.
-                User user = userService.findUserByUsername(username);
-                UserPrincipal userPrincipal = new UserPrincipal(user);
-                String access_token = jwtTokenProvider.generateJwtAccessToken(userPrincipal);
+                VerifiedToken verifiedToken = jwtTokenProvider.verifyToken(refresh_token);
+
+                if(tokenRevocationService.isRevoked(verifiedToken)){ // A revoked refresh token cannot mint new access tokens.
+                    writeTokenError(response);
+                    return;
+                }
 
+                String newRefreshTokenId = UUID.randomUUID().toString();
+
+                if(!refreshTokenFamilyService.rotate(verifiedToken.getFamilyId(), verifiedToken.getTokenId(), newRefreshTokenId)){
+                    writeTokenError(response); // Unknown, expired or already used refresh token.
+                    return;
+                }
+
+                String username = verifiedToken.getSubject(); // Get the username.
+                AuthorizationSnapshot snapshot = authorizationVersionService.getIfCurrent(username, verifiedToken.getAuthorizationVersion());
                 Map<String,String> tokens = new HashMap<>();
-                tokens.put(JWT_ACCESS_TOKEN_HEADER, access_token);
-                tokens.put(JWT_REFRESH_TOKEN_HEADER, refresh_token);
+
+                if(snapshot != null){ // Nothing changed since this refresh token was issued, so we don't need the database.
+                    if(!snapshot.isActive() || !snapshot.isNotLocked()){ // Checked on every refresh, not only at login.
+                        writeTokenError(response);
+                        return;
+                    }
+
+                    tokens.put(JWT_ACCESS_TOKEN_HEADER, jwtTokenProvider.generateJwtAccessToken(username, snapshot.getAuthorities()));
+                    tokens.put(JWT_REFRESH_TOKEN_HEADER, jwtTokenProvider.generateJwtRefreshToken(
+                            username, snapshot.getAuthorizationVersion(), verifiedToken.getFamilyId(), newRefreshTokenId));
+                } else{
+                    User user = userService.findUserByUsername(username);
+
+                    if(user == null){
+                        writeTokenError(response);
+                        return;
+                    }
+
+                    authorizationVersionService.record(user);
+
+                    if(!user.isActive() || !user.isNotLocked()){ // Locked or deactivated since the login.
+                        writeTokenError(response);
+                        return;
+                    }
+
+                    UserPrincipal userPrincipal = new UserPrincipal(user);
+                    tokens.put(JWT_ACCESS_TOKEN_HEADER, jwtTokenProvider.generateJwtAccessToken(userPrincipal));
+                    tokens.put(JWT_REFRESH_TOKEN_HEADER, jwtTokenProvider.generateJwtRefreshToken(
+                            userPrincipal, verifiedToken.getFamilyId(), newRefreshTokenId)); // Carries the new version, so the next refresh skips the database again.
+                }
+
                 response.setContentType(APPLICATION_JSON_VALUE);
-                new ObjectMapper().writeValue(response.getOutputStream(), tokens);
+                objectMapper.writeValue(response.getOutputStream(), tokens);
         } else{
-            response.setHeader("Error", TOKEN_CANNOT_BE_VERIFIED);
-            response.setStatus(HttpStatus.FORBIDDEN.value());
-            Map<String,String> error = new HashMap<>();
-            error.put("Error", TOKEN_CANNOT_BE_VERIFIED);
-            response.setContentType(APPLICATION_JSON_VALUE);
-            new ObjectMapper().writeValue(response.getOutputStream(), error);
+            writeTokenError(response);
+        }
+    }
+
+//    BATCH TOKEN INTROSPECTION (for API gateways)
+    @PostMapping("/token/introspect")
+    public ResponseEntity<StreamingResponseBody> introspectTokens(@RequestBody List<String> tokens) throws BatchTooLargeException {
+
+        if(tokens.size() > tokenIntrospectionService.getMaximumBatchSize()){
+            throw new BatchTooLargeException(BATCH_TOO_LARGE + tokenIntrospectionService.getMaximumBatchSize());
         }
+
+        StreamingResponseBody body = outputStream -> { // One JSON line per token, written as soon as it is verified.
+            try {
+                tokenIntrospectionService.introspect(tokens, result -> {
+                    try {
+                        outputStream.write(objectMapper.writeValueAsBytes(result));
+                        outputStream.write('\n');
+                        outputStream.flush();
+                    } catch (IOException exception){
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+            } catch (InterruptedException exception){
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     /////////////////////////////////////////////
 
+    private UserFileFormat toFileFormat(String format) throws FileFormatNotValidException {
+
+        try {
+            return UserFileFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException exception){
+            throw new FileFormatNotValidException(FILE_FORMAT_NOT_VALID);
+        }
+    }
+
     private ResponseEntity<HttpResponse> response(HttpStatus httpStatus, String message) {
 
         HttpResponse body = new HttpResponse(
@@ -219,16 +452,25 @@ public class UserResource extends ExceptionHandling {
         return new ResponseEntity<>(body, httpStatus); // ResponseEntity takes two parameters: body & httpStatus. In this case, the body is the HttpResponse custom class.
     }
 
-    private Map getJwtTokens(UserPrincipal userPrincipal) {
+    private void writeTokenError(HttpServletResponse response) throws IOException {
+
+        response.setHeader("Error", TOKEN_CANNOT_BE_VERIFIED);
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        Map<String,String> error = new HashMap<>();
+        error.put("Error", TOKEN_CANNOT_BE_VERIFIED);
+        response.setContentType(APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    private Map<String,String> getJwtTokens(UserPrincipal userPrincipal) {
 
         Map<String,String> tokens = new HashMap<>();
         tokens.put(SecurityConstant.JWT_ACCESS_TOKEN_HEADER, jwtTokenProvider.generateJwtAccessToken(userPrincipal));
-        tokens.put(SecurityConstant.JWT_REFRESH_TOKEN_HEADER, jwtTokenProvider.generateJwtRefreshToken(userPrincipal));
+        String familyId = UUID.randomUUID().toString(); // Every login starts a new chain of refresh tokens.
+        String refreshTokenId = UUID.randomUUID().toString();
+        refreshTokenFamilyService.startFamily(familyId, refreshTokenId, userPrincipal.getUsername());
+        tokens.put(SecurityConstant.JWT_REFRESH_TOKEN_HEADER, jwtTokenProvider.generateJwtRefreshToken(userPrincipal, familyId, refreshTokenId));
 
         return tokens;
     }
-
-    private void authenticate(String username, String password) {
-        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
-    }
 }
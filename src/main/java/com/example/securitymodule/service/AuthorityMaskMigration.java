@@ -0,0 +1,39 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.enumeration.Role;
+import com.example.securitymodule.repository.UserRepository;
+import com.example.securitymodule.utility.AuthorityBitmask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+
+import static com.example.securitymodule.constant.SecurityConstant.AUTHORITY_MASKS_MIGRATED;
+
+@Component
+@Slf4j
+public class AuthorityMaskMigration { // Rows written before the authority_mask column existed have a 0 there. Their authorities follow from the role.
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public AuthorityMaskMigration(UserRepository userRepository, TransactionTemplate transactionTemplate) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    //    Before the server takes requests. Until then such users would have no authorities at all. Nothing to do once migrated.
+    @PostConstruct
+    public void migrate() {
+
+        for(Role role : Role.values()){
+            int authorityMask = AuthorityBitmask.toKnownMask(role.getAuthorities());
+            Integer migrated = transactionTemplate.execute(status -> userRepository.fillAuthorityMask(role.name(), authorityMask));
+
+            if(migrated != null && migrated > 0){
+                log.info(AUTHORITY_MASKS_MIGRATED + migrated + " " + role.name());
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.AuthorizationSnapshot;
+import com.example.securitymodule.domain.User;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+//  In-memory table of the latest authorization version per user, one per node. A change made on this node invalidates it
+//  right away, a change made on another node is only seen here once the entry expires. Changes that must take effect
+//  everywhere at once (role, lock, deactivation by an admin) also revoke the user's tokens, which every node syncs.
+@Service
+public class AuthorizationVersionService {
+
+    private final Cache<String, AuthorizationSnapshot> versionTable;
+
+    public AuthorizationVersionService(@Value("${security.authorization-version.ttl:60000}") long ttl,
+                                       @Value("${security.authorization-version.maximum-size:100000}") long maximumSize) {
+        versionTable = CacheBuilder
+                        .newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(ttl, TimeUnit.MILLISECONDS) // Bounds how stale another node's view can get.
+                        .build();
+    }
+
+    public void record(User user) {
+        versionTable.put(user.getUsername(), new AuthorizationSnapshot(
+                user.getAuthorizationVersion(), user.getAuthorities(), user.isActive(), user.isNotLocked()));
+    }
+
+    //    Returns the snapshot only if the token was issued at the current version, null means "ask the database".
+    public AuthorizationSnapshot getIfCurrent(String username, Long authorizationVersion) {
+
+        AuthorizationSnapshot snapshot = versionTable.getIfPresent(username);
+
+        if(snapshot == null || authorizationVersion == null || snapshot.getAuthorizationVersion() != authorizationVersion){
+            return null;
+        }
+
+        return snapshot;
+    }
+
+    public void bumpVersion(User user) {
+        user.setAuthorizationVersion(user.getAuthorizationVersion() + 1);
+        versionTable.invalidate(user.getUsername());
+    }
+
+    public void invalidate(String username) {
+        versionTable.invalidate(username);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.HeavyHitter;
+import com.example.securitymodule.utility.CountMinSketch;
+import com.example.securitymodule.utility.HeavyHitters;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class HeavyHitterService { // Finds the addresses and usernames behind most failed logins, in fixed memory.
+
+    public static final String ADDRESSES = "addresses";
+    public static final String USERNAMES = "usernames";
+
+    private final HeavyHitters failedAddresses;
+    private final HeavyHitters failedUsernames;
+    private final CountMinSketch successfulAddresses; // Shown next to the failures, a busy office NAT also logs in successfully.
+    private final CountMinSketch successfulUsernames;
+    private final int blockThreshold;
+
+    public HeavyHitterService(@Value("${security.heavy-hitters.depth:4}") int depth,
+                              @Value("${security.heavy-hitters.width:4096}") int width,
+                              @Value("${security.heavy-hitters.top:20}") int top,
+                              @Value("${security.heavy-hitters.block-threshold:0}") int blockThreshold) {
+        this.failedAddresses = new HeavyHitters(depth, width, top);
+        this.failedUsernames = new HeavyHitters(depth, width, top);
+        this.successfulAddresses = new CountMinSketch(depth, width);
+        this.successfulUsernames = new CountMinSketch(depth, width);
+        this.blockThreshold = blockThreshold;
+    }
+
+    public void recordFailure(String address, String username) {
+
+        if(address != null){
+            failedAddresses.add(address);
+        }
+        if(username != null){
+            failedUsernames.add(username);
+        }
+    }
+
+    public void recordSuccess(String address, String username) {
+
+        if(address != null){
+            successfulAddresses.add(address);
+        }
+        if(username != null){
+            successfulUsernames.add(username);
+        }
+    }
+
+    //    An address with more recent failures than the threshold is refused before its password is checked. 0 turns this off.
+    public boolean isBlocked(String address) {
+        return blockThreshold > 0 && address != null && failedAddresses.estimate(address) >= blockThreshold;
+    }
+
+    public Map<String, List<HeavyHitter>> getTopOffenders() {
+
+        Map<String, List<HeavyHitter>> offenders = new LinkedHashMap<>();
+        offenders.put(ADDRESSES, toHeavyHitters(failedAddresses, successfulAddresses));
+        offenders.put(USERNAMES, toHeavyHitters(failedUsernames, successfulUsernames));
+
+        return offenders;
+    }
+
+    //    Every interval halves all counts: the numbers are a rate with a half-life of one interval, not totals since startup.
+    @Scheduled(fixedDelayString = "${security.heavy-hitters.decay-interval:60000}")
+    public void decay() {
+        failedAddresses.decay();
+        failedUsernames.decay();
+        successfulAddresses.decay();
+        successfulUsernames.decay();
+    }
+
+    private static List<HeavyHitter> toHeavyHitters(HeavyHitters failures, CountMinSketch successes) {
+
+        List<HeavyHitter> heavyHitters = new ArrayList<>();
+        for(Map.Entry<String, Integer> entry : failures.getTop()){
+            heavyHitters.add(new HeavyHitter(entry.getKey(), entry.getValue(), successes.estimate(entry.getKey())));
+        }
+
+        return heavyHitters;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.securitymodule.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+@Service
+@ConditionalOnProperty(name = "security.login-attempts.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryLoginAttemptStore implements LoginAttemptStore { // Counts failed logins per user in a sliding window, on this node only.
+
+    private static final int SWEEP_PER_ATTEMPT = 4; // Each failed login also expires a few old users, so no sweep ever has to walk the map.
+    private static final int EVICT_PER_ATTEMPT = 16; // Locked users passed over at capacity, before the map is left a little over it.
+
+    private final int maximumAttempts;
+    private final long window;
+    private final int maximumKeys;
+    private final Map<String, Attempts> attempts = new ConcurrentHashMap<>(); // Atomic per key, and no global lock.
+    private final Queue<Expiry> expiryQueue = new ConcurrentLinkedQueue<>(); // Users in the order they should be checked for expiry.
+
+    public InMemoryLoginAttemptStore(@Value("${security.login-attempts.maximum-attempts:5}") int maximumAttempts,
+                                     @Value("${security.login-attempts.window:900000}") long window,
+                                     @Value("${security.login-attempts.maximum-keys:500000}") int maximumKeys,
+                                     MeterRegistry meterRegistry) {
+        this.maximumAttempts = maximumAttempts;
+        this.window = window;
+        this.maximumKeys = maximumKeys;
+
+        Gauge.builder("login.attempts.tracked", attempts, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    public void reset(String username){
+        attempts.remove(username); // Its expiry entry is stale now, and skipped by the sweep or eviction that reaches it.
+    }
+
+    @Override
+    public void recordFailure(String username){
+
+        long now = System.currentTimeMillis();
+        Attempts[] created = new Attempts[1];
+
+        attempts.compute(username, (key, current) -> {
+            if(current == null){
+                created[0] = new Attempts(new long[]{now}, new Object());
+                return created[0];
+            }
+            return current.add(now, maximumAttempts);
+        });
+
+        if(created[0] != null){
+            expiryQueue.add(new Expiry(username, now, created[0]));
+        }
+
+        expire(now, SWEEP_PER_ATTEMPT);
+        evict(now);
+    }
+
+    @Override
+    public int countRecentFailures(String username){
+
+        Attempts current = attempts.get(username);
+        return current == null ? 0 : current.countSince(System.currentTimeMillis() - window);
+    }
+
+    @Scheduled(fixedDelay = 10 * 1000)
+    public void removeExpiredAttempts() {
+        expire(System.currentTimeMillis(), Integer.MAX_VALUE);
+    }
+
+    //    Looks at the oldest entries only. A user who still has attempts in the window goes back to the end of the queue.
+    private void expire(long now, int limit) {
+
+        long cutoff = now - window;
+
+        for(int checked = 0; checked < limit; checked++){
+            Expiry head = expiryQueue.peek();
+
+            if(head == null || head.checkAt > cutoff || !expiryQueue.remove(head)){
+                return;
+            }
+
+            Attempts remaining = attempts.computeIfPresent(head.username,
+                    (key, current) -> current.entry == head.entry && current.latest() <= cutoff ? null : current);
+
+            if(remaining != null && remaining.entry == head.entry){
+                expiryQueue.add(new Expiry(head.username, remaining.latest(), remaining));
+            }
+        }
+    }
+
+    //    Bounded memory: the users we have not heard from the longest go first. A locked user is never evicted, or spraying
+    //    new usernames would flush its failures and give the attacker a fresh set of guesses. It goes back to the end of the
+    //    queue, and when only locked users are left the map grows past the bound until their windows end.
+    private void evict(long now) {
+
+        long cutoff = now - window;
+
+        for(int checked = 0; attempts.size() > maximumKeys && checked < EVICT_PER_ATTEMPT; checked++){
+            Expiry oldest = expiryQueue.poll();
+
+            if(oldest == null){
+                return;
+            }
+
+            Attempts kept = attempts.computeIfPresent(oldest.username,
+                    (key, current) -> current.entry == oldest.entry && current.countSince(cutoff) < maximumAttempts ? null : current);
+
+            if(kept != null && kept.entry == oldest.entry){ // Locked. A counter created after a reset has an expiry of its own.
+                expiryQueue.add(oldest);
+            }
+        }
+    }
+
+    private static final class Attempts { // Immutable, the last "maximumAttempts" failures in ascending order. Older ones cannot matter.
+
+        private final long[] times;
+        private final Object entry; // Stays the same while the user is tracked. An expiry queued for an earlier one is stale.
+
+        private Attempts(long[] times, Object entry) {
+            this.times = times;
+            this.entry = entry;
+        }
+
+        private Attempts add(long time, int maximumAttempts) {
+
+            int kept = Math.min(times.length, maximumAttempts - 1);
+            long[] added = Arrays.copyOfRange(times, times.length - kept, times.length + 1);
+            added[kept] = time;
+
+            return new Attempts(added, entry);
+        }
+
+        private int countSince(long cutoff) {
+
+            int count = 0;
+            for(int i = times.length - 1; i >= 0 && times[i] > cutoff; i--){
+                count++;
+            }
+
+            return count;
+        }
+
+        private long latest() {
+            return times[times.length - 1];
+        }
+    }
+
+    private static final class Expiry {
+
+        private final String username;
+        private final long checkAt; // The newest attempt when queued. The user cannot expire before this plus the window.
+        private final Object entry;
+
+        private Expiry(String username, long checkAt, Attempts attempts) {
+            this.username = username;
+            this.checkAt = checkAt;
+            this.entry = attempts.entry;
+        }
+    }
+}
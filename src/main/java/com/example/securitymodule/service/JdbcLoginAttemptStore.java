@@ -0,0 +1,200 @@
+package com.example.securitymodule.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.securitymodule.constant.SecurityConstant.LOGIN_ATTEMPTS_FLUSH_RETRIED;
+
+@Service
+@ConditionalOnProperty(name = "security.login-attempts.store", havingValue = "jdbc")
+@DependsOn("entityManagerFactory") // The LOGIN_ATTEMPT_BUCKET table must exist before we use it.
+@Slf4j
+public class JdbcLoginAttemptStore implements LoginAttemptStore { // Failed logins counted in the database, so every node locks out the same users.
+
+    private static final int BUCKETS_PER_WINDOW = 15; // The window slides one bucket at a time, e.g. a minute for 15 minutes.
+    private static final int FLUSH_ATTEMPTS = 3;
+    private static final String SELECT_RECENT_FAILURES = "SELECT COALESCE(SUM(attempts), 0) FROM login_attempt_bucket WHERE username = ? AND bucket >= ?";
+    private static final String UPDATE_BUCKET = "UPDATE login_attempt_bucket SET attempts = attempts + ? WHERE username = ? AND bucket = ?";
+    private static final String INSERT_BUCKET = "INSERT INTO login_attempt_bucket (attempts, username, bucket) VALUES (?, ?, ?)";
+    private static final String DELETE_USER = "DELETE FROM login_attempt_bucket WHERE username = ?";
+    private static final String DELETE_EXPIRED_BUCKETS = "DELETE FROM login_attempt_bucket WHERE bucket < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long bucketSize;
+    private final Map<BucketKey, Integer> pendingFailures = new ConcurrentHashMap<>(); // Counted here, written by the next flush.
+    private final Map<BucketKey, Integer> flushingFailures = new ConcurrentHashMap<>(); // Being written right now, still counted.
+    private final Cache<String, Integer> nearCache; // Failures already in the database, re-read after a short TTL to see other nodes.
+
+    public JdbcLoginAttemptStore(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${security.login-attempts.window:900000}") long window,
+                                 @Value("${security.login-attempts.jdbc.near-cache-ttl:2000}") long nearCacheTtl,
+                                 @Value("${security.login-attempts.jdbc.near-cache-size:100000}") long nearCacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.bucketSize = Math.max(1, window / BUCKETS_PER_WINDOW);
+        this.nearCache = CacheBuilder
+                         .newBuilder()
+                         .expireAfterWrite(nearCacheTtl, TimeUnit.MILLISECONDS)
+                         .maximumSize(nearCacheSize)
+                         .build();
+
+        Gauge.builder("login.attempts.pending", pendingFailures, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    public void recordFailure(String username) {
+        pendingFailures.merge(new BucketKey(username, currentBucket()), 1, Integer::sum); // No database write per failed login.
+    }
+
+    @Override
+    public int countRecentFailures(String username) {
+
+        long currentBucket = currentBucket();
+        long firstBucket = currentBucket - BUCKETS_PER_WINDOW + 1;
+        int failures;
+
+        try {
+            failures = nearCache.get(username, () -> jdbcTemplate.queryForObject(SELECT_RECENT_FAILURES, Integer.class, username, firstBucket));
+        } catch (ExecutionException exception){
+            throw new IllegalStateException(exception.getCause());
+        }
+
+        for(long bucket = firstBucket; bucket <= currentBucket; bucket++){ // Our own failures that no node can read yet.
+            BucketKey key = new BucketKey(username, bucket);
+            failures += pendingFailures.getOrDefault(key, 0) + flushingFailures.getOrDefault(key, 0);
+        }
+
+        return failures;
+    }
+
+    @Override
+    public synchronized void reset(String username) { // Not during a flush, or it could write the failures back.
+
+        if(countRecentFailures(username) == 0){
+            return; // The usual successful login: nothing to delete, so no write.
+        }
+
+        pendingFailures.keySet().removeIf(key -> key.username.equals(username));
+        flushingFailures.keySet().removeIf(key -> key.username.equals(username));
+        jdbcTemplate.update(DELETE_USER, username);
+        nearCache.invalidate(username);
+    }
+
+    //    Write-behind: one row update per user and bucket, whatever the number of failures in between.
+    @Scheduled(fixedDelayString = "${security.login-attempts.jdbc.flush-interval:500}",
+               initialDelayString = "${security.login-attempts.jdbc.flush-interval:500}") // Nothing to write at startup.
+    @PreDestroy
+    public synchronized void flush() {
+
+        if(pendingFailures.isEmpty() && flushingFailures.isEmpty()){
+            return;
+        }
+
+        for(BucketKey key : pendingFailures.keySet()){
+            Integer failures = pendingFailures.remove(key); // Failures recorded after this go into a new entry.
+            if(failures != null){
+                flushingFailures.merge(key, failures, Integer::sum); // Adds to what a failed flush left behind.
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(flushingFailures.size());
+        Set<String> usernames = new HashSet<>();
+        flushingFailures.forEach((key, failures) -> {
+            rows.add(new Object[]{failures, key.username, key.bucket});
+            usernames.add(key.username);
+        });
+
+        for(int attempt = 1; ; attempt++){
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeBatch(rows)); // All or nothing, so a retry cannot count twice.
+                break;
+            } catch (DataIntegrityViolationException exception){
+                if(attempt == FLUSH_ATTEMPTS){
+                    throw exception;
+                }
+                log.info(LOGIN_ATTEMPTS_FLUSH_RETRIED + attempt); // Another node inserted one of our rows first, now it is an update.
+            }
+        }
+
+        nearCache.invalidateAll(usernames); // Invalidated before the in-flight counts are dropped: a reader may count twice for a moment, never zero.
+        flushingFailures.clear();
+    }
+
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void removeExpiredBuckets() {
+        jdbcTemplate.update(DELETE_EXPIRED_BUCKETS, currentBucket() - BUCKETS_PER_WINDOW + 1);
+    }
+
+    private void writeBatch(List<Object[]> rows) {
+
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_BUCKET, rows);
+        List<Object[]> inserts = new ArrayList<>();
+
+        for(int i = 0; i < updated.length; i++){
+            if(updated[i] == 0){ // No node wrote this user and bucket yet.
+                inserts.add(rows.get(i));
+            }
+        }
+
+        if(!inserts.isEmpty()){
+            jdbcTemplate.batchUpdate(INSERT_BUCKET, inserts);
+        }
+    }
+
+    private long currentBucket() {
+        return System.currentTimeMillis() / bucketSize;
+    }
+
+    private static final class BucketKey {
+
+        private final String username;
+        private final long bucket;
+
+        private BucketKey(String username, long bucket) {
+            this.username = username;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(this == other){
+                return true;
+            }
+            if(!(other instanceof BucketKey)){
+                return false;
+            }
+            BucketKey key = (BucketKey) other;
+            return bucket == key.bucket && username.equals(key.username);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, bucket);
+        }
+    }
+}
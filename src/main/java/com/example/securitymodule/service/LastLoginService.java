@@ -0,0 +1,155 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.domain.UserSummary;
+import com.example.securitymodule.utility.UserCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+@Slf4j
+public class LastLoginService { // Keeps last-login timestamps in memory and writes them in batches, so a login does not write to the database.
+
+    private static final String UPDATE_LAST_LOGIN = "UPDATE user SET last_login_date = ?, last_login_date_display = ? WHERE id = ?";
+
+    private final Map<Long, LastLogin> pendingLogins = new ConcurrentHashMap<>(); // user id -> newest timestamps, one entry per user.
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "last-login-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final JdbcTemplate jdbcTemplate;
+    private final UserCache userCache;
+    private final int batchSize;
+
+    public LastLoginService(JdbcTemplate jdbcTemplate,
+                            UserCache userCache,
+                            MeterRegistry meterRegistry,
+                            @Value("${security.last-login.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userCache = userCache;
+        this.batchSize = batchSize;
+
+        Gauge.builder("user.last-login.pending", pendingLogins, Map::size).register(meterRegistry);
+    }
+
+    //    The previous login becomes the one to display. Repeat logins before a flush collapse into a single row update.
+    public void recordLogin(User user) {
+
+        Date now = new Date();
+        LastLogin lastLogin = pendingLogins.compute(user.getId(), (id, pending) ->
+                new LastLogin(now, pending != null ? pending.lastLoginDate : user.getLastLoginDate()));
+
+        user.setLastLoginDateDisplay(lastLogin.lastLoginDateDisplay); // Not written by JPA, the columns are not updatable.
+        user.setLastLoginDate(lastLogin.lastLoginDate);
+
+        if(pendingLogins.size() >= batchSize && flushScheduled.compareAndSet(false, true)){
+            writer.execute(() -> { // A full batch is written right away, but never on the login thread.
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    //    Reads see the newest login, even when it is not written yet.
+    public User overlay(User user) {
+
+        if(user != null && user.getId() != null){
+            LastLogin pending = pendingLogins.get(user.getId());
+
+            if(pending != null){
+                user.setLastLoginDate(pending.lastLoginDate);
+                user.setLastLoginDateDisplay(pending.lastLoginDateDisplay);
+            }
+        }
+
+        return user;
+    }
+
+    public UserSummary overlay(UserSummary user) {
+
+        LastLogin pending = pendingLogins.get(user.getId());
+
+        if(pending != null){
+            user.setLastLoginDate(pending.lastLoginDate);
+            user.setLastLoginDateDisplay(pending.lastLoginDateDisplay);
+        }
+
+        return user;
+    }
+
+    @Scheduled(fixedDelayString = "${security.last-login.flush-interval:1000}")
+    public synchronized void flush() {
+
+        if(pendingLogins.isEmpty()){
+            return;
+        }
+
+        List<Map.Entry<Long, LastLogin>> batch = new ArrayList<>(Math.min(batchSize, pendingLogins.size()));
+
+        for(Map.Entry<Long, LastLogin> pending : pendingLogins.entrySet()){
+            batch.add(Map.entry(pending.getKey(), pending.getValue()));
+
+            if(batch.size() >= batchSize){
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+
+        writeBatch(batch);
+    }
+
+    private void writeBatch(List<Map.Entry<Long, LastLogin>> batch) {
+
+        if(batch.isEmpty()){
+            return;
+        }
+
+        List<Object[]> updates = new ArrayList<>(batch.size());
+        for(Map.Entry<Long, LastLogin> pending : batch){
+            updates.add(new Object[]{pending.getValue().lastLoginDate, pending.getValue().lastLoginDateDisplay, pending.getKey()});
+        }
+
+        jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN, updates);
+
+        for(Map.Entry<Long, LastLogin> pending : batch){
+            userCache.evict(pending.getKey(), null, null); // Cached before the write, the overlay no longer covers it.
+            pendingLogins.remove(pending.getKey(), pending.getValue()); // Only once written. A newer login stays for the next flush.
+        }
+    }
+
+    @PreDestroy
+    private void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+        flush(); // Whatever is still pending.
+    }
+
+    private static final class LastLogin { // Immutable, so a flush can tell whether a newer login replaced it.
+
+        private final Date lastLoginDate;
+        private final Date lastLoginDateDisplay;
+
+        private LastLogin(Date lastLoginDate, Date lastLoginDateDisplay) {
+            this.lastLoginDate = lastLoginDate;
+            this.lastLoginDateDisplay = lastLoginDateDisplay;
+        }
+    }
+}
@@ -1,58 +1,29 @@
 package com.example.securitymodule.service;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-
 @Service
-public class LoginAttemptService {
+public class LoginAttemptService { // Locks out brute-force attempts. The counting itself is done by the configured LoginAttemptStore.
 
-    private static final int MAXIMUM_ATTEMPTS_ALLOWED = 5;
-    private static final int ATTEMPT_INCREMENT = 1;
-    private LoadingCache<String, Integer> loginAttemptCache;
+    private final LoginAttemptStore loginAttemptStore;
+    private final int maximumAttempts;
 
-    //    Initialize Cache from Guava Dependency
-    public LoginAttemptService() {
-        super();
-        loginAttemptCache = CacheBuilder
-                            .newBuilder()
-                            .expireAfterWrite(15, TimeUnit.MINUTES)
-                            .maximumSize(100)
-                            .build(new CacheLoader<String, Integer>() {
-                                @Override
-                                public Integer load(String s) {
-                                    return 0;
-                                }
-                            });
+    public LoginAttemptService(LoginAttemptStore loginAttemptStore,
+                               @Value("${security.login-attempts.maximum-attempts:5}") int maximumAttempts) {
+        this.loginAttemptStore = loginAttemptStore;
+        this.maximumAttempts = maximumAttempts;
     }
 
     public void evictUserFromLoginAttemptCache(String username){
-        loginAttemptCache.invalidate(username); // Remove user from cache.
+        loginAttemptStore.reset(username);
     }
 
     public void addUserToLoginAttemptCache(String username){
-
-        int attempts = 0;
-
-        try {
-            attempts = ATTEMPT_INCREMENT + loginAttemptCache.get(username); // Before adding the user, add +1 to login attempts.
-        } catch (ExecutionException e) {
-            e.printStackTrace();
-        }
-        loginAttemptCache.put(username, attempts); // Adding user to cache.
+        loginAttemptStore.recordFailure(username);
     }
 
     public boolean hasExceededMaxAttempts(String username){
-        try {
-            return loginAttemptCache.get(username) >= MAXIMUM_ATTEMPTS_ALLOWED;
-        } catch (ExecutionException e) {
-            e.printStackTrace();
-        }
-
-        return false;
+        return loginAttemptStore.countRecentFailures(username) >= maximumAttempts;
     }
 }
@@ -0,0 +1,13 @@
+package com.example.securitymodule.service;
+
+//  Where failed logins are counted. In memory for a single node, or in the database so every node behind the load balancer sees the same count.
+//  Selected with "security.login-attempts.store": memory (default) or jdbc.
+public interface LoginAttemptStore {
+
+    void recordFailure(String username);
+
+    //    Failed logins within the window. Stores may stop counting once the maximum is reached.
+    int countRecentFailures(String username);
+
+    void reset(String username);
+}
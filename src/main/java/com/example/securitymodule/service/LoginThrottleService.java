@@ -0,0 +1,79 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.exception.domain.LoginThrottledException;
+import com.example.securitymodule.utility.TokenBuckets;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import static com.example.securitymodule.constant.SecurityConstant.*;
+
+@Service
+@Slf4j
+public class LoginThrottleService { // Rate limits login attempts by client address and by username, before any password is hashed.
+
+    private final TokenBuckets addressBuckets;
+    private final TokenBuckets usernameBuckets;
+    private final Counter throttledByAddress;
+    private final Counter throttledByUsername;
+    private final Counter throttledAsHeavyHitter;
+    private final HeavyHitterService heavyHitterService;
+    private final long heavyHitterRetryAfter;
+
+    public LoginThrottleService(MeterRegistry meterRegistry,
+                                HeavyHitterService heavyHitterService,
+                                @Value("${security.heavy-hitters.decay-interval:60000}") long heavyHitterRetryAfter,
+                                @Value("${security.login-throttle.address.capacity:20}") int addressCapacity,
+                                @Value("${security.login-throttle.address.refill-interval:1000}") long addressRefillInterval,
+                                @Value("${security.login-throttle.username.capacity:10}") int usernameCapacity,
+                                @Value("${security.login-throttle.username.refill-interval:6000}") long usernameRefillInterval,
+                                @Value("${security.login-throttle.maximum-keys:200000}") int maximumKeys) {
+        this.addressBuckets = new TokenBuckets(addressCapacity, addressRefillInterval, maximumKeys);
+        this.usernameBuckets = new TokenBuckets(usernameCapacity, usernameRefillInterval, maximumKeys);
+        this.throttledByAddress = Counter.builder("login.throttled").tag("key", "address").register(meterRegistry);
+        this.throttledByUsername = Counter.builder("login.throttled").tag("key", "username").register(meterRegistry);
+        this.throttledAsHeavyHitter = Counter.builder("login.throttled").tag("key", "heavy-hitter").register(meterRegistry);
+        this.heavyHitterService = heavyHitterService;
+        this.heavyHitterRetryAfter = heavyHitterRetryAfter;
+
+        Gauge.builder("login.throttle.buckets", addressBuckets, TokenBuckets::size).tag("key", "address").register(meterRegistry);
+        Gauge.builder("login.throttle.buckets", usernameBuckets, TokenBuckets::size).tag("key", "username").register(meterRegistry);
+    }
+
+    //    One token from each bucket. The address bucket stops a single client, the username bucket stops a botnet going after one account.
+    public void checkLoginAttempt(String address, String username) throws LoginThrottledException {
+
+        if(heavyHitterService.isBlocked(address)){
+            throttledAsHeavyHitter.increment();
+            throw throttled(heavyHitterRetryAfter); // Its failure count halves once per decay interval.
+        }
+
+        long waitMillis = address == null ? 0 : addressBuckets.tryConsume(address);
+
+        if(waitMillis > 0){
+            throttledByAddress.increment();
+            throw throttled(waitMillis);
+        }
+
+        waitMillis = username == null ? 0 : usernameBuckets.tryConsume(username);
+
+        if(waitMillis > 0){
+            throttledByUsername.increment();
+            throw throttled(waitMillis);
+        }
+    }
+
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void removeIdleBuckets() {
+        addressBuckets.cleanUp();
+        usernameBuckets.cleanUp();
+    }
+
+    private static LoginThrottledException throttled(long waitMillis) {
+        return new LoginThrottledException(TOO_MANY_LOGIN_ATTEMPTS, (waitMillis + 999) / 1000); // Retry-After is in whole seconds.
+    }
+}
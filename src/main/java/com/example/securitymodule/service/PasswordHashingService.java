@@ -0,0 +1,161 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.exception.domain.ServerBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static com.example.securitymodule.constant.SecurityConstant.*;
+
+@Service
+@Slf4j
+public class PasswordHashingService { // BCrypt runs here, not on the request threads, so a login burst cannot stall every other endpoint.
+
+    private static final long BUSY_BACKOFF = 100;
+    private static final String USER_NOT_FOUND_PASSWORD = "userNotFoundPassword";
+
+    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final long retryAfterSeconds;
+    private final ThreadPoolExecutor executor;
+    private final Executor completionExecutor;
+    private final Timer waitTime;
+    private final Counter rejections;
+    private volatile String userNotFoundPassword;
+
+    public PasswordHashingService(BCryptPasswordEncoder bCryptPasswordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Qualifier("applicationTaskExecutor") Executor completionExecutor,
+                                  @Value("${security.password-hashing.queue-size:64}") int queueSize,
+                                  @Value("${security.password-hashing.retry-after:1}") long retryAfterSeconds) {
+        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.completionExecutor = completionExecutor;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        int threads = Runtime.getRuntime().availableProcessors(); // Hashing is pure CPU work, more threads would only queue in the scheduler.
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()); // A full queue means the caller would wait too long anyway, so fail fast.
+
+        Gauge.builder("password.hashing.queue.size", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        this.waitTime = Timer.builder("password.hashing.wait").publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+        this.rejections = Counter.builder("password.hashing.rejected").register(meterRegistry);
+    }
+
+    //    Runs the task on the hashing pool. The future completes on an application task thread, so the database work a caller chains
+    //    to it never holds a hashing thread.
+    public <T> CompletableFuture<T> submit(Supplier<T> task) throws ServerBusyException {
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+
+        try {
+            executor.execute(() -> {
+                waitTime.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    T result = task.get();
+                    completionExecutor.execute(() -> future.complete(result));
+                } catch (Throwable throwable){
+                    completionExecutor.execute(() -> future.completeExceptionally(throwable));
+                }
+            });
+        } catch (RejectedExecutionException exception){
+            rejections.increment();
+            log.warn(PASSWORD_HASHING_BUSY + executor.getQueue().size());
+            throw new ServerBusyException(SERVER_BUSY, retryAfterSeconds);
+        }
+
+        return future;
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) throws ServerBusyException {
+        return submit(() -> bCryptPasswordEncoder.encode(rawPassword));
+    }
+
+    //    Completes with the hash to keep: the stored one, or a new one when the stored hash is weaker than the encoder. Completes with
+    //    null when the password does not match. Without a stored hash it is checked against a dummy one, so the time taken does not
+    //    tell whether the user exists.
+    public CompletableFuture<String> checkPassword(String rawPassword, String encodedPassword) throws ServerBusyException {
+        return submit(() -> {
+            if(rawPassword == null){
+                return null;
+            }
+
+            if(encodedPassword == null){
+                bCryptPasswordEncoder.matches(rawPassword, userNotFoundPassword());
+                return null;
+            }
+
+            if(!bCryptPasswordEncoder.matches(rawPassword, encodedPassword)){
+                return null;
+            }
+
+            return bCryptPasswordEncoder.upgradeEncoding(encodedPassword) ? bCryptPasswordEncoder.encode(rawPassword) : encodedPassword;
+        });
+    }
+
+    //    Encodes a whole batch, but queues at most "parallelism" hashes at a time, so logins still get their turn on the pool.
+    public List<String> encodeAll(List<String> rawPasswords, int parallelism) throws InterruptedException {
+
+        Semaphore inFlight = new Semaphore(parallelism);
+        List<CompletableFuture<String>> hashes = new ArrayList<>(rawPasswords.size());
+
+        for(String rawPassword : rawPasswords){
+            inFlight.acquire();
+            CompletableFuture<String> hash = null;
+
+            while(hash == null){
+                try {
+                    hash = submit(() -> bCryptPasswordEncoder.encode(rawPassword));
+                } catch (ServerBusyException exception){
+                    Thread.sleep(BUSY_BACKOFF); // Logins filled the queue. A batch can wait, they cannot.
+                }
+            }
+
+            hash.whenComplete((encoded, failure) -> inFlight.release());
+            hashes.add(hash);
+        }
+
+        return hashes.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private String userNotFoundPassword() {
+
+        if(userNotFoundPassword == null){ // Two threads may both encode it once, either hash will do.
+            userNotFoundPassword = bCryptPasswordEncoder.encode(USER_NOT_FOUND_PASSWORD);
+        }
+
+        return userNotFoundPassword;
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdown();
+    }
+}
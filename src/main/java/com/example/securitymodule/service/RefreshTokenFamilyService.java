@@ -0,0 +1,212 @@
+package com.example.securitymodule.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static com.example.securitymodule.constant.SecurityConstant.*;
+
+//  By default the families live in this node's map only, and a refresh never touches the database. Behind several nodes the
+//  refreshes of a family must then be routed to the node that started it, and a restart logs everyone out again.
+//  With persistent families the REFRESH_TOKEN_FAMILY table is the only source of truth: every rotation is a compare-and-set
+//  on its row, so a token rotated on one node cannot be used again on another. The map only saves the read of the row.
+@Service
+@DependsOn("entityManagerFactory") // The REFRESH_TOKEN_FAMILY table must exist before we use it.
+@Slf4j
+public class RefreshTokenFamilyService { // Refresh tokens are single-use: each refresh rotates the family to a new token.
+
+    private static final long BUCKET_SIZE = 60 * 60 * 1000; // Families are swept one hour bucket at a time.
+    private static final String SELECT_FAMILY = "SELECT username, token_id, expires_at FROM refresh_token_family WHERE family_id = ?";
+    private static final String INSERT_FAMILY = "INSERT INTO refresh_token_family (username, token_id, expires_at, family_id) VALUES (?, ?, ?, ?)";
+    private static final String ROTATE_FAMILY = "UPDATE refresh_token_family SET token_id = ?, expires_at = ? WHERE family_id = ? AND token_id = ?";
+    private static final String DELETE_FAMILY = "DELETE FROM refresh_token_family WHERE family_id = ?";
+    private static final String DELETE_EXPIRED_FAMILIES = "DELETE FROM refresh_token_family WHERE expires_at <= ?";
+
+    //    ConcurrentHashMap locks per bin, never globally, so millions of families rotate in parallel.
+    private final Map<UUID, Family> families = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Set<UUID>> expiryBuckets = new ConcurrentSkipListMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Value("${security.refresh-token-family.persistent:false}")
+    private boolean persistent;
+
+    public void startFamily(String familyId, String tokenId, String username) {
+
+        UUID id = UUID.fromString(familyId);
+        Family family = new Family(username, UUID.fromString(tokenId), System.currentTimeMillis() + REFRESH_EXPIRATION_TIME);
+
+        if(persistent){ // Before the token is handed out, so any node can rotate it right away.
+            jdbcTemplate.update(INSERT_FAMILY, family.username, family.tokenId.toString(), family.expiresAt, familyId);
+        }
+
+        families.put(id, family);
+        addToBucket(id, family.expiresAt);
+    }
+
+    //    Moves the family to a new token. Presenting any other token than the current one means it was stolen,
+    //    so the whole family and every token of the user are revoked.
+    public boolean rotate(String familyId, String presentedTokenId, String newTokenId) {
+
+        if(familyId == null || presentedTokenId == null){
+            return false; // Refresh tokens issued before families existed.
+        }
+
+        UUID id = UUID.fromString(familyId);
+        UUID presentedId = UUID.fromString(presentedTokenId);
+        UUID newId = UUID.fromString(newTokenId);
+
+        return persistent ? rotateInDatabase(id, presentedId, newId) : rotateInMemory(id, presentedId, newId);
+    }
+
+    private boolean rotateInMemory(UUID id, UUID presentedId, UUID newId) {
+
+        long now = System.currentTimeMillis();
+
+        while(true){
+            Family current = families.get(id);
+
+            if(current == null || current.expiresAt <= now){
+                return false;
+            }
+
+            if(!current.tokenId.equals(presentedId)){
+                revokeFamily(id, current);
+                return false;
+            }
+
+            Family rotated = new Family(current.username, newId, now + REFRESH_EXPIRATION_TIME);
+
+            if(families.replace(id, current, rotated)){ // Only one of two concurrent refreshes with the same token can win.
+                moveBucket(id, current.expiresAt, rotated.expiresAt);
+                return true;
+            }
+        }
+    }
+
+    private boolean rotateInDatabase(UUID id, UUID presentedId, UUID newId) {
+
+        long now = System.currentTimeMillis();
+        Family current = families.get(id);
+
+        if(current == null || !current.tokenId.equals(presentedId)){
+            current = loadFamily(id); // Started or rotated on another node, or not seen by this one yet.
+        }
+
+        if(current == null || current.expiresAt <= now){
+            families.remove(id);
+            return false;
+        }
+
+        if(!current.tokenId.equals(presentedId)){
+            revokeFamily(id, current);
+            return false;
+        }
+
+        Family rotated = new Family(current.username, newId, now + REFRESH_EXPIRATION_TIME);
+
+        //    Only one of two concurrent refreshes with the same token can win, on any node. The loser presented a used token.
+        if(jdbcTemplate.update(ROTATE_FAMILY, newId.toString(), rotated.expiresAt, id.toString(), presentedId.toString()) == 0){
+            revokeFamily(id, current);
+            return false;
+        }
+
+        families.put(id, rotated);
+        moveBucket(id, current.expiresAt, rotated.expiresAt);
+        return true;
+    }
+
+    private Family loadFamily(UUID familyId) {
+
+        List<Family> found = jdbcTemplate.query(SELECT_FAMILY, (resultSet, rowNumber) ->
+                new Family(resultSet.getString(1), UUID.fromString(resultSet.getString(2)), resultSet.getLong(3)), familyId.toString());
+
+        if(found.isEmpty()){
+            return null;
+        }
+
+        families.put(familyId, found.get(0));
+        addToBucket(familyId, found.get(0).expiresAt);
+        return found.get(0);
+    }
+
+    private void revokeFamily(UUID familyId, Family family) {
+
+        boolean removed = persistent
+                ? jdbcTemplate.update(DELETE_FAMILY, familyId.toString()) > 0 // Only the request that deletes the row revokes.
+                : families.remove(familyId, family);
+
+        if(persistent){
+            families.remove(familyId);
+        }
+
+        if(removed){
+            tokenRevocationService.revokeUser(family.username);
+            log.warn(REFRESH_TOKEN_REUSED + family.username);
+        }
+    }
+
+    //    Only the buckets that just expired are visited, never the whole map.
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void removeExpiredFamilies() {
+
+        long now = System.currentTimeMillis();
+        Map.Entry<Long, Set<UUID>> oldest;
+
+        while((oldest = expiryBuckets.firstEntry()) != null && oldest.getKey() < now / BUCKET_SIZE){
+            expiryBuckets.remove(oldest.getKey());
+            for(UUID familyId : oldest.getValue()){
+                families.computeIfPresent(familyId, (id, family) -> family.expiresAt <= now ? null : family); // Rotated families moved to a later bucket.
+            }
+        }
+
+        if(persistent){
+            jdbcTemplate.update(DELETE_EXPIRED_FAMILIES, now);
+        }
+    }
+
+    private void addToBucket(UUID familyId, long expiresAt) {
+        expiryBuckets.computeIfAbsent(expiresAt / BUCKET_SIZE, bucket -> ConcurrentHashMap.newKeySet()).add(familyId);
+    }
+
+    private void moveBucket(UUID familyId, long oldExpiresAt, long newExpiresAt) {
+
+        if(oldExpiresAt / BUCKET_SIZE == newExpiresAt / BUCKET_SIZE){
+            return;
+        }
+
+        Set<UUID> oldBucket = expiryBuckets.get(oldExpiresAt / BUCKET_SIZE);
+        if(oldBucket != null){
+            oldBucket.remove(familyId); // Keeps each family in a single bucket, however often it rotates.
+        }
+        addToBucket(familyId, newExpiresAt);
+    }
+
+    private static final class Family { // Immutable, so a rotation is a single compare-and-set on the map.
+
+        private final String username;
+        private final UUID tokenId;
+        private final long expiresAt;
+
+        private Family(String username, UUID tokenId, long expiresAt) {
+            this.username = username;
+            this.tokenId = tokenId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.TokenIntrospection;
+import com.example.securitymodule.domain.VerifiedToken;
+import com.example.securitymodule.utility.JWTTokenProvider;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.example.securitymodule.constant.SecurityConstant.INTROSPECTION_TIMED_OUT;
+
+@Service
+public class TokenIntrospectionService { // Verifies a batch of tokens for API gateways, in parallel.
+
+    private final JWTTokenProvider jwtTokenProvider;
+    private final TokenRevocationService tokenRevocationService;
+    private final int parallelism;
+    private final int maximumBatchSize;
+    private final long timeout;
+    private final ExecutorService executor;
+    private final DistributionSummary batchSizes;
+    private final Timer batchLatency;
+
+    public TokenIntrospectionService(JWTTokenProvider jwtTokenProvider,
+                                     TokenRevocationService tokenRevocationService,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${security.introspection.queue-size:1000}") int queueSize,
+                                     @Value("${security.introspection.maximum-batch-size:1000}") int maximumBatchSize,
+                                     @Value("${security.introspection.timeout:5000}") long timeout) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.tokenRevocationService = tokenRevocationService;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.maximumBatchSize = maximumBatchSize;
+        this.timeout = timeout;
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadPoolExecutor.CallerRunsPolicy()); // When the pool is busy, the request thread verifies its own slice.
+        this.batchSizes = DistributionSummary.builder("jwt.introspection.batch.size").register(meterRegistry);
+        this.batchLatency = Timer.builder("jwt.introspection.latency").publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+    }
+
+    public int getMaximumBatchSize() {
+        return maximumBatchSize;
+    }
+
+    //    Hands every result to the consumer as soon as it is ready, on the calling thread.
+    public void introspect(List<String> tokens, Consumer<TokenIntrospection> consumer) throws InterruptedException {
+
+        long start = System.nanoTime();
+        batchSizes.record(tokens.size());
+
+        BlockingQueue<TokenIntrospection> completed = new LinkedBlockingQueue<>();
+        int slices = Math.max(1, Math.min(parallelism, tokens.size()));
+        int sliceSize = (tokens.size() + slices - 1) / slices; // One task per slice, not per token: a verification takes microseconds.
+
+        for(int from = 0; from < tokens.size(); from += sliceSize){
+            int first = from;
+            int last = Math.min(from + sliceSize, tokens.size());
+            executor.execute(() -> {
+                for(int index = first; index < last; index++){
+                    completed.add(introspect(index, tokens.get(index)));
+                }
+            });
+        }
+
+        boolean[] received = new boolean[tokens.size()];
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        for(int count = 0; count < tokens.size(); count++){
+            TokenIntrospection result = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+            if(result == null){ // A slice is stuck, answer for its tokens instead of holding the request forever.
+                for(int index = 0; index < received.length; index++){
+                    if(!received[index]){
+                        consumer.accept(TokenIntrospection.failed(index, INTROSPECTION_TIMED_OUT));
+                    }
+                }
+                break;
+            }
+
+            received[result.getIndex()] = true;
+            consumer.accept(result);
+        }
+
+        batchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private TokenIntrospection introspect(int index, String token) {
+
+        try {
+            VerifiedToken verifiedToken = jwtTokenProvider.verifyToken(token); // Same verifier and cache as the filter.
+
+            if(verifiedToken.isRefreshToken() || // Gateways must only let access tokens through.
+                    !jwtTokenProvider.isTokenValid(verifiedToken) || tokenRevocationService.isRevoked(verifiedToken)){
+                return TokenIntrospection.inactive(index);
+            }
+
+            List<String> authorities = new ArrayList<>(verifiedToken.getAuthorities().size());
+            for(GrantedAuthority grantedAuthority : verifiedToken.getAuthorities()){
+                authorities.add(grantedAuthority.getAuthority());
+            }
+
+            return new TokenIntrospection(index, true, verifiedToken.getSubject(), authorities,
+                                          verifiedToken.getExpiresAt().getTime() / 1000, null);
+        } catch (RuntimeException exception){ // Do not send the reason back, just "not active". Also keeps the slice going.
+            return TokenIntrospection.inactive(index);
+        }
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdown();
+    }
+}
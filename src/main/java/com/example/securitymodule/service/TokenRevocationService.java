@@ -0,0 +1,230 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.VerifiedToken;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static com.example.securitymodule.constant.SecurityConstant.*;
+
+@Service
+@DependsOn("entityManagerFactory") // The REVOKED_TOKEN and REVOKED_USER tables must exist before we load them.
+@Slf4j
+public class TokenRevocationService {
+
+    private static final long BUCKET_SIZE = 60 * 1000; // Entries are dropped one minute bucket at a time.
+    private static final long SYNC_OVERLAP = 60 * 1000; // Each sync re-reads the last minute, for clock skew between nodes and late commits.
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.001;
+    private static final String SELECT_REVOKED_TOKENS = "SELECT token_id, expires_at FROM revoked_token WHERE revoked_at >= ? AND expires_at > ?";
+    private static final String SELECT_REVOKED_USERS = "SELECT username, revoked_until FROM revoked_user WHERE revoked_until >= ? AND expires_at > ?";
+    private static final String INSERT_TOKEN = "INSERT INTO revoked_token (revoked_at, expires_at, token_id) VALUES (?, ?, ?)";
+    private static final String UPDATE_USER = "UPDATE revoked_user SET revoked_until = ?, expires_at = ? WHERE username = ? AND revoked_until < ?";
+    private static final String INSERT_USER = "INSERT INTO revoked_user (revoked_until, expires_at, username) VALUES (?, ?, ?)";
+    private static final String DELETE_EXPIRED_TOKENS = "DELETE FROM revoked_token WHERE expires_at <= ?";
+    private static final String DELETE_EXPIRED_USERS = "DELETE FROM revoked_user WHERE expires_at <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean persistent;
+    private final int expectedRevocations;
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>(); // jti -> token expiration.
+    private final Map<String, Long> revokedUsers = new ConcurrentHashMap<>(); // username -> tokens issued until then are revoked.
+    private final NavigableMap<Long, Set<String>> tokenBuckets = new ConcurrentSkipListMap<>(); // bucket -> jti's that expire in it.
+    private final NavigableMap<Long, Set<String>> userBuckets = new ConcurrentSkipListMap<>();
+
+    //    Nothing revoked is the common case, so it only costs a few hash probes. Only a "maybe" reaches the maps.
+    private volatile BloomFilter<CharSequence> tokenFilter;
+    private volatile BloomFilter<CharSequence> userFilter;
+    private volatile long lastSync; // Revocations of the other nodes are read from here on, minus the overlap.
+
+    public TokenRevocationService(JdbcTemplate jdbcTemplate,
+                                  @Value("${security.revocation.persistent:true}") boolean persistent,
+                                  @Value("${security.revocation.expected-revocations:100000}") int expectedRevocations) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.persistent = persistent;
+        this.expectedRevocations = expectedRevocations;
+        this.tokenFilter = createFilter(expectedRevocations);
+        this.userFilter = createFilter(expectedRevocations);
+    }
+
+    @PostConstruct
+    private void loadRevocations() {
+        syncRevocations();
+    }
+
+    public boolean isRevoked(VerifiedToken verifiedToken) {
+
+        String tokenId = verifiedToken.getTokenId();
+
+        if(tokenId != null && tokenFilter.mightContain(tokenId) && revokedTokens.containsKey(tokenId)){
+            return true;
+        }
+
+        String username = verifiedToken.getSubject();
+
+        if(username != null && userFilter.mightContain(username)){
+            Long revokedUntil = revokedUsers.get(username);
+            //    "iat" only has whole seconds, so every token of the revocation's second is rejected: one issued just before it must
+            //    never get through. A token issued just after it, in that same second, is rejected too and the client logs in again.
+            return revokedUntil != null && (verifiedToken.getIssuedAt() == null || verifiedToken.getIssuedAt().getTime() < (revokedUntil + 999) / 1000 * 1000);
+        }
+
+        return false;
+    }
+
+    //    Revoke a single token. We only keep it until the token would have expired anyway.
+    public void revokeToken(String tokenId, Date expiresAt) {
+
+        long now = System.currentTimeMillis();
+        long expiration = expiresAt == null ? now + REFRESH_EXPIRATION_TIME : expiresAt.getTime();
+
+        rememberToken(tokenId, expiration);
+
+        if(persistent){
+            try {
+                jdbcTemplate.update(INSERT_TOKEN, now, expiration, tokenId);
+            } catch (DuplicateKeyException e) {
+                // Already revoked, by this node or another one.
+            }
+        }
+
+        log.info(TOKEN_REVOKED + tokenId);
+    }
+
+    //    Revoke every token (access and refresh) issued to this user until now.
+    public void revokeUser(String username) {
+
+        long now = System.currentTimeMillis();
+
+        rememberUser(username, now);
+
+        if(persistent && jdbcTemplate.update(UPDATE_USER, now, now + REFRESH_EXPIRATION_TIME, username, now) == 0){
+            try {
+                jdbcTemplate.update(INSERT_USER, now, now + REFRESH_EXPIRATION_TIME, username);
+            } catch (DuplicateKeyException e) {
+                // Revoked by another node at the same time, or later than now: either way its revocation covers ours.
+                jdbcTemplate.update(UPDATE_USER, now, now + REFRESH_EXPIRATION_TIME, username, now);
+            }
+        }
+
+        log.info(USER_TOKENS_REVOKED + username);
+    }
+
+    //    Revocations are written to the database as they happen, every node reads the others' here.
+    //    A revocation made on another node is enforced on this one after at most this interval.
+    @Scheduled(fixedDelayString = "${security.revocation.sync-interval:5000}")
+    public void syncRevocations() {
+
+        if(!persistent){
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long since = lastSync == 0 ? 0 : lastSync - SYNC_OVERLAP;
+
+        jdbcTemplate.query(SELECT_REVOKED_TOKENS, resultSet -> {
+            rememberToken(resultSet.getString(1), resultSet.getLong(2));
+        }, since, now);
+        jdbcTemplate.query(SELECT_REVOKED_USERS, resultSet -> {
+            rememberUser(resultSet.getString(1), resultSet.getLong(2));
+        }, since, now);
+
+        lastSync = now;
+    }
+
+    private synchronized void rememberToken(String tokenId, long expiration) {
+
+        if(revokedTokens.putIfAbsent(tokenId, expiration) == null){
+            tokenBuckets.computeIfAbsent(bucketOf(expiration), bucket -> ConcurrentHashMap.newKeySet()).add(tokenId);
+            tokenFilter.put(tokenId);
+        }
+    }
+
+    private synchronized void rememberUser(String username, long revokedUntil) {
+
+        Long previous = revokedUsers.get(username);
+
+        if(previous != null && previous >= revokedUntil){
+            return;
+        }
+
+        revokedUsers.put(username, revokedUntil);
+
+        if(previous != null){
+            Set<String> previousBucket = userBuckets.get(bucketOf(previous + REFRESH_EXPIRATION_TIME));
+            if(previousBucket != null){
+                previousBucket.remove(username);
+            }
+        }
+
+        userBuckets.computeIfAbsent(bucketOf(revokedUntil + REFRESH_EXPIRATION_TIME), bucket -> ConcurrentHashMap.newKeySet()).add(username);
+        userFilter.put(username);
+    }
+
+    //    Drop whole buckets whose tokens are all expired, then rebuild the filters without them.
+    @Scheduled(fixedDelay = BUCKET_SIZE)
+    public synchronized void removeExpiredRevocations() {
+
+        long now = System.currentTimeMillis();
+        long currentBucket = bucketOf(now);
+        boolean removedTokens = dropBuckets(tokenBuckets, revokedTokens, currentBucket);
+        boolean removedUsers = dropBuckets(userBuckets, revokedUsers, currentBucket);
+
+        if(removedTokens){
+            tokenFilter = rebuildFilter(revokedTokens.keySet());
+        }
+
+        if(removedUsers){
+            userFilter = rebuildFilter(revokedUsers.keySet());
+        }
+
+        if(persistent){ // Every node runs this, the later ones just find nothing left to delete.
+            jdbcTemplate.update(DELETE_EXPIRED_TOKENS, now);
+            jdbcTemplate.update(DELETE_EXPIRED_USERS, now);
+        }
+    }
+
+    private boolean dropBuckets(NavigableMap<Long, Set<String>> buckets, Map<String, Long> revocations, long currentBucket) {
+
+        boolean removed = false;
+        Map.Entry<Long, Set<String>> oldest;
+
+        while((oldest = buckets.firstEntry()) != null && oldest.getKey() < currentBucket){
+            buckets.remove(oldest.getKey());
+            oldest.getValue().forEach(revocations::remove);
+            removed = true;
+        }
+
+        return removed;
+    }
+
+    private BloomFilter<CharSequence> rebuildFilter(Set<String> keys) {
+
+        BloomFilter<CharSequence> filter = createFilter(Math.max(expectedRevocations, keys.size() * 2)); // Grow with the deny list.
+        keys.forEach(filter::put);
+
+        return filter;
+    }
+
+    private static BloomFilter<CharSequence> createFilter(int expectedInsertions) {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, FALSE_POSITIVE_PROBABILITY);
+    }
+
+    private static long bucketOf(long time) {
+        return time / BUCKET_SIZE;
+    }
+}
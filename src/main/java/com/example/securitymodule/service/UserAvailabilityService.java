@@ -0,0 +1,130 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.utility.ScalableBloomFilter;
+import com.example.securitymodule.utility.UserCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+
+import static com.example.securitymodule.constant.SecurityConstant.AVAILABILITY_INDEX_BUILT;
+
+@Service
+@Slf4j
+public class UserAvailabilityService { // Answers "is this username or email taken?" from memory, unless the answer might be yes.
+
+    private static final String SELECT_USERNAMES_AND_EMAILS = "SELECT username, email FROM user";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserCache userCache;
+    private final long expectedUsers;
+    private final double falsePositiveProbability;
+    private final Counter answeredFromIndex;
+    private final Counter answeredFromDatabase;
+
+    //    Bloom filters cannot forget a key: a released username stays a "maybe", answered by the database, until the next rebuild.
+    private volatile Index index; // Null until the first build, then every question goes to the database.
+    private volatile Index nextIndex; // Being built. Writes go to both, so none is lost in the swap.
+
+    public UserAvailabilityService(DataSource dataSource,
+                                   UserCache userCache,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${security.availability.fetch-size:1000}") int fetchSize,
+                                   @Value("${security.availability.expected-users:100000}") long expectedUsers,
+                                   @Value("${security.availability.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.userCache = userCache;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.answeredFromIndex = Counter.builder("user.availability.checks").tag("answer", "index").register(meterRegistry);
+        this.answeredFromDatabase = Counter.builder("user.availability.checks").tag("answer", "database").register(meterRegistry);
+
+        Gauge.builder("user.availability.keys", this, service -> service.index == null ? 0 : service.index.usernames.approximateElementCount())
+             .register(meterRegistry);
+    }
+
+    public boolean isUsernameAvailable(String username) {
+
+        Index current = index;
+
+        if(current != null && !current.usernames.mightContain(username)){
+            answeredFromIndex.increment();
+            return true; // Definitely not taken, no query.
+        }
+
+        answeredFromDatabase.increment();
+        return userCache.findByUsername(username) == null;
+    }
+
+    public boolean isEmailAvailable(String email) {
+
+        Index current = index;
+
+        if(current != null && !current.emails.mightContain(email)){
+            answeredFromIndex.increment();
+            return true;
+        }
+
+        answeredFromDatabase.increment();
+        return userCache.findByEmail(email) == null;
+    }
+
+    //    Call on every write that may add a username or email, before it commits: too early only costs a query.
+    public void addUser(String username, String email) {
+
+        Index current = index;
+        Index next = nextIndex;
+
+        if(current != null){
+            current.add(username, email);
+        }
+        if(next != null){
+            next.add(username, email);
+        }
+    }
+
+    //    Streams the USER table at startup, then again now and then to drop released keys.
+    @Scheduled(initialDelay = 0, fixedDelayString = "${security.availability.rebuild-interval:3600000}")
+    public void rebuild() {
+
+        long start = System.currentTimeMillis();
+        Index next = new Index(expectedUsers, falsePositiveProbability);
+        nextIndex = next; // Before the query, so writes from now on reach the new index.
+
+        jdbcTemplate.query(SELECT_USERNAMES_AND_EMAILS, resultSet -> {
+            next.add(resultSet.getString("username"), resultSet.getString("email"));
+        });
+
+        index = next;
+        nextIndex = null;
+        log.info(AVAILABILITY_INDEX_BUILT + next.usernames.approximateElementCount() + " users in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private static final class Index {
+
+        private final ScalableBloomFilter usernames;
+        private final ScalableBloomFilter emails;
+
+        private Index(long expectedUsers, double falsePositiveProbability) {
+            this.usernames = new ScalableBloomFilter(expectedUsers, falsePositiveProbability);
+            this.emails = new ScalableBloomFilter(expectedUsers, falsePositiveProbability);
+        }
+
+        private void add(String username, String email) {
+
+            if(username != null){
+                usernames.put(username);
+            }
+            if(email != null){
+                emails.put(email);
+            }
+        }
+    }
+}
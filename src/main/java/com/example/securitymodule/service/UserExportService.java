@@ -0,0 +1,181 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.UserSummary;
+import com.example.securitymodule.enumeration.UserFileFormat;
+import com.example.securitymodule.exception.domain.ServerBusyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static com.example.securitymodule.constant.SecurityConstant.*;
+
+@Service
+@Slf4j
+public class UserExportService { // Streams the whole user table row by row: memory stays the same whatever its size.
+
+    private static final String SELECT_USERS = "SELECT id, user_id, first_name, last_name, username, email, profile_image_url, " +
+                                               "last_login_date, last_login_date_display, join_date, role, authority_mask, is_active, is_not_locked " +
+                                               "FROM user ORDER BY id";
+    private static final String CSV_HEADER = "userId,firstName,lastName,username,email,profileImageUrl,lastLoginDate,lastLoginDateDisplay,joinDate,role,active,notLocked\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int ROWS_PER_PERMIT = 100; // Throttled in steps, not per row.
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LastLoginService lastLoginService;
+    private final ObjectMapper objectMapper;
+    private final Semaphore runningExports;
+    private final RateLimiter rateLimiter; // Shared by all exports. Null when not throttled.
+    private final Counter exportedRows;
+
+    public UserExportService(DataSource dataSource,
+                             PlatformTransactionManager transactionManager,
+                             LastLoginService lastLoginService,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${security.user-export.fetch-size:1000}") int fetchSize,
+                             @Value("${security.user-export.rows-per-second:20000}") double rowsPerSecond,
+                             @Value("${security.user-export.maximum-concurrent:2}") int maximumConcurrent) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize); // Rows come from a forward-only cursor, this many per round trip.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true); // Some drivers only stream inside a transaction, e.g. PostgreSQL.
+        this.lastLoginService = lastLoginService;
+        this.objectMapper = objectMapper;
+        this.runningExports = new Semaphore(maximumConcurrent);
+        this.rateLimiter = rowsPerSecond > 0 ? RateLimiter.create(rowsPerSecond) : null;
+        this.exportedRows = meterRegistry.counter("user.export.rows");
+    }
+
+    //    Opens the target only once the export may run, so a busy server can still answer with a normal error response.
+    public void export(UserFileFormat format, boolean gzip, ExportTarget target) throws ServerBusyException, IOException {
+
+        if(!runningExports.tryAcquire()){
+            throw new ServerBusyException(SERVER_BUSY, 1);
+        }
+
+        long start = System.nanoTime();
+        AtomicLong rows = new AtomicLong();
+
+        try(OutputStream outputStream = new BufferedOutputStream(gzip ? new GZIPOutputStream(target.open(), BUFFER_SIZE) : target.open(), BUFFER_SIZE)){
+
+            if(format == UserFileFormat.CSV){
+                outputStream.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+            }
+
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(SELECT_USERS, resultSet -> {
+                try {
+                    writeRow(format, lastLoginService.overlay(toUserSummary(resultSet)), outputStream);
+                } catch (IOException exception){
+                    throw new UncheckedIOException(exception); // The client went away, this ends the query.
+                }
+
+                if(rows.incrementAndGet() % ROWS_PER_PERMIT == 0){
+                    exportedRows.increment(ROWS_PER_PERMIT);
+                    if(rateLimiter != null){
+                        rateLimiter.acquire(ROWS_PER_PERMIT); // Leaves the database and CPU to interactive requests.
+                    }
+                }
+            }));
+        } catch (UncheckedIOException exception){
+            throw exception.getCause();
+        } finally {
+            runningExports.release();
+            exportedRows.increment(rows.get() % ROWS_PER_PERMIT);
+        }
+
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info(USERS_EXPORTED + rows.get() + " in " + millis + " ms (" + rows.get() * 1000 / millis + " rows/s)");
+    }
+
+    private void writeRow(UserFileFormat format, UserSummary user, OutputStream outputStream) throws IOException {
+
+        if(format == UserFileFormat.NDJSON){
+            outputStream.write(objectMapper.writeValueAsBytes(user));
+            outputStream.write('\n');
+            return;
+        }
+
+        StringBuilder line = new StringBuilder(256);
+        appendCsv(line, user.getUserId()).append(',');
+        appendCsv(line, user.getFirstName()).append(',');
+        appendCsv(line, user.getLastName()).append(',');
+        appendCsv(line, user.getUsername()).append(',');
+        appendCsv(line, user.getEmail()).append(',');
+        appendCsv(line, user.getProfileImageUrl()).append(',');
+        appendCsv(line, user.getLastLoginDate()).append(',');
+        appendCsv(line, user.getLastLoginDateDisplay()).append(',');
+        appendCsv(line, user.getJoinDate()).append(',');
+        appendCsv(line, user.getRole()).append(',');
+        line.append(user.isActive()).append(',').append(user.isNotLocked()).append('\n');
+
+        outputStream.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    //    RFC 4180: quoted only when needed, quotes doubled.
+    private static StringBuilder appendCsv(StringBuilder line, Object value) {
+
+        if(value == null){
+            return line;
+        }
+
+        String text = value instanceof Date ? ((Date) value).toInstant().toString() : value.toString();
+
+        if(text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0){
+            return line.append(text);
+        }
+
+        return line.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+
+    private static UserSummary toUserSummary(ResultSet resultSet) throws SQLException {
+
+        return new UserSummary(
+                resultSet.getLong("id"),
+                resultSet.getString("user_id"),
+                resultSet.getString("first_name"),
+                resultSet.getString("last_name"),
+                resultSet.getString("username"),
+                resultSet.getString("email"),
+                resultSet.getString("profile_image_url"),
+                toDate(resultSet.getTimestamp("last_login_date")),
+                toDate(resultSet.getTimestamp("last_login_date_display")),
+                toDate(resultSet.getTimestamp("join_date")),
+                resultSet.getString("role"),
+                resultSet.getInt("authority_mask"),
+                resultSet.getBoolean("is_active"),
+                resultSet.getBoolean("is_not_locked"));
+    }
+
+    private static Date toDate(Timestamp timestamp) {
+        return timestamp == null ? null : new Date(timestamp.getTime()); // Serialized like the dates of User.
+    }
+
+    @FunctionalInterface
+    public interface ExportTarget {
+
+        OutputStream open() throws IOException;
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.ImportError;
+import com.example.securitymodule.domain.ImportResult;
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.enumeration.Role;
+import com.example.securitymodule.enumeration.UserFileFormat;
+import com.example.securitymodule.exception.domain.ServerBusyException;
+import com.example.securitymodule.repository.UserRepository;
+import com.example.securitymodule.utility.UserCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.validator.routines.EmailValidator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.example.securitymodule.constant.FileConstant.DEFAULT_USER_IMAGE_PATH;
+import static com.example.securitymodule.constant.FileConstant.FORWARD_SLASH;
+import static com.example.securitymodule.constant.SecurityConstant.SERVER_BUSY;
+import static com.example.securitymodule.constant.SecurityConstant.USERS_IMPORTED;
+import static com.example.securitymodule.constant.UserImplConstant.*;
+
+@Service
+@Slf4j
+public class UserImportService { // Creates users in chunks: two validation queries, parallel hashing and batched inserts per chunk.
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordHashingService passwordHashingService;
+    private final UserAvailabilityService userAvailabilityService;
+    private final UserCache userCache;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int hashingParallelism;
+    private final int maximumErrors;
+    private final Semaphore runningImports;
+
+    public UserImportService(UserRepository userRepository,
+                             TransactionTemplate transactionTemplate,
+                             PasswordHashingService passwordHashingService,
+                             UserAvailabilityService userAvailabilityService,
+                             UserCache userCache,
+                             ObjectMapper objectMapper,
+                             @Value("${security.user-import.chunk-size:500}") int chunkSize,
+                             @Value("${security.user-import.hashing-parallelism:0}") int hashingParallelism,
+                             @Value("${security.user-import.maximum-errors:1000}") int maximumErrors,
+                             @Value("${security.user-import.maximum-concurrent:1}") int maximumConcurrent) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.passwordHashingService = passwordHashingService;
+        this.userAvailabilityService = userAvailabilityService;
+        this.userCache = userCache;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.hashingParallelism = hashingParallelism > 0 ? hashingParallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.maximumErrors = maximumErrors;
+        this.runningImports = new Semaphore(maximumConcurrent);
+    }
+
+    //    Reads one chunk at a time, so memory does not grow with the file. A failed row never stops the import.
+    public ImportResult importUsers(UserFileFormat format, InputStream inputStream) throws ServerBusyException, IOException, InterruptedException {
+
+        if(!runningImports.tryAcquire()){
+            throw new ServerBusyException(SERVER_BUSY, 1);
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            Progress progress = new Progress();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            List<String> header = null;
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            String line;
+            long lineNumber = 0;
+
+            while((line = reader.readLine()) != null){
+                lineNumber++;
+
+                if(line.isBlank()){
+                    continue;
+                }
+                if(format == UserFileFormat.CSV && header == null){
+                    header = parseCsvLine(line);
+                    continue;
+                }
+
+                progress.rows++;
+                Row row = parseRow(format, header, line, lineNumber, progress);
+
+                if(row != null){
+                    chunk.add(row);
+                }
+                if(chunk.size() == chunkSize){
+                    importChunk(chunk, progress);
+                    chunk.clear();
+                }
+            }
+
+            importChunk(chunk, progress);
+
+            long millis = Math.max(1, System.currentTimeMillis() - start);
+            long rowsPerSecond = progress.rows * 1000 / millis;
+            log.info(USERS_IMPORTED + progress.imported + ", failed: " + progress.failed + " in " + millis + " ms (" + rowsPerSecond + " rows/s)");
+
+            return new ImportResult(progress.imported, progress.failed, millis, rowsPerSecond, progress.errors);
+        } finally {
+            runningImports.release();
+        }
+    }
+
+    private void importChunk(List<Row> chunk, Progress progress) throws InterruptedException {
+
+        List<Row> rows = validate(chunk, progress);
+
+        if(rows.isEmpty()){
+            return;
+        }
+
+        List<String> rawPasswords = rows.stream()
+                                        .map(row -> row.password != null ? row.password : RandomStringUtils.randomAlphanumeric(10))
+                                        .collect(Collectors.toList());
+        List<String> encodedPasswords = passwordHashingService.encodeAll(rawPasswords, hashingParallelism); // The slow part, in parallel.
+
+        for(int i = 0; i < rows.size(); i++){
+            rows.get(i).encodedPassword = encodedPasswords.get(i);
+        }
+
+        insert(rows, progress);
+    }
+
+    //    A violation means a name was taken since validation. Two queries find which, and the rest is batched again.
+    //    Only when they find nothing, e.g. a value too long for its column, are the rows inserted one by one.
+    private void insert(List<Row> rows, Progress progress) {
+
+        while(!rows.isEmpty()){
+            List<User> users = rows.stream().map(UserImportService::toUser).collect(Collectors.toList()); // New entities per attempt, a failed batch leaves its ids on them.
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> { // Batched inserts, one transaction.
+                    userRepository.saveAll(users);
+                    userRepository.flush();
+                });
+                users.forEach(user -> imported(user, progress));
+                return;
+            } catch (DataIntegrityViolationException exception){
+                List<Row> available = removeTaken(rows, progress);
+
+                if(available.size() == rows.size()){
+                    insertOneByOne(rows, progress);
+                    return;
+                }
+
+                rows = available;
+            }
+        }
+    }
+
+    private void insertOneByOne(List<Row> rows, Progress progress) {
+
+        for(Row row : rows){
+            User user = toUser(row);
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> userRepository.saveAndFlush(user));
+                imported(user, progress);
+            } catch (DataIntegrityViolationException exception){
+                progress.fail(row, conflictMessage(exception), maximumErrors);
+            }
+        }
+    }
+
+    //    Format and duplicates within the chunk first, then one query each for the usernames and emails already taken.
+    private List<Row> validate(List<Row> chunk, Progress progress) {
+
+        EmailValidator emailValidator = EmailValidator.getInstance();
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        List<Row> valid = new ArrayList<>(chunk.size());
+
+        for(Row row : chunk){
+            if(StringUtils.isBlank(row.username)){
+                progress.fail(row, USERNAME_NOT_VALID, maximumErrors);
+            } else if(!emailValidator.isValid(row.email)){
+                progress.fail(row, EMAIL_NOT_VALID, maximumErrors);
+            } else if(!usernames.add(row.username)){
+                progress.fail(row, THIS_USERNAME_ALREADY_EXISTS, maximumErrors);
+            } else if(!emails.add(row.email)){
+                progress.fail(row, THIS_EMAIL_ADDRESS_ALREADY_EXISTS, maximumErrors);
+            } else{
+                valid.add(row);
+            }
+        }
+
+        return removeTaken(valid, progress);
+    }
+
+    private List<Row> removeTaken(List<Row> rows, Progress progress) {
+
+        if(rows.isEmpty()){
+            return rows;
+        }
+
+        Set<String> takenUsernames = new HashSet<>(userRepository.findExistingUsernames(rows.stream().map(row -> row.username).collect(Collectors.toList())));
+        Set<String> takenEmails = new HashSet<>(userRepository.findExistingEmails(rows.stream().map(row -> row.email).collect(Collectors.toList())));
+
+        if(takenUsernames.isEmpty() && takenEmails.isEmpty()){
+            return rows;
+        }
+
+        List<Row> available = new ArrayList<>(rows.size());
+        for(Row row : rows){
+            if(takenUsernames.contains(row.username)){
+                progress.fail(row, THIS_USERNAME_ALREADY_EXISTS, maximumErrors);
+            } else if(takenEmails.contains(row.email)){
+                progress.fail(row, THIS_EMAIL_ADDRESS_ALREADY_EXISTS, maximumErrors);
+            } else{
+                available.add(row);
+            }
+        }
+
+        return available;
+    }
+
+    private void imported(User user, Progress progress) {
+        userAvailabilityService.addUser(user.getUsername(), user.getEmail());
+        userCache.evict(user); // Drops cached "not found" answers.
+        progress.imported++;
+    }
+
+    private Row parseRow(UserFileFormat format, List<String> header, String line, long lineNumber, Progress progress) {
+
+        Function<String, String> fields;
+
+        try {
+            if(format == UserFileFormat.CSV){
+                List<String> values = parseCsvLine(line);
+                Map<String, String> byName = new HashMap<>();
+                for(int i = 0; i < header.size() && i < values.size(); i++){
+                    byName.put(header.get(i), values.get(i));
+                }
+                fields = byName::get;
+            } else{
+                JsonNode node = objectMapper.readTree(line);
+                fields = name -> node.hasNonNull(name) ? node.get(name).asText() : null;
+            }
+        } catch (JsonProcessingException | IllegalArgumentException exception){
+            progress.fail(lineNumber, null, ROW_NOT_VALID, maximumErrors);
+            return null;
+        }
+
+        Row row = new Row(lineNumber, fields);
+
+        try {
+            row.role = StringUtils.isBlank(fields.apply("role")) ? Role.ROLE_USER : Role.valueOf(fields.apply("role").toUpperCase());
+        } catch (IllegalArgumentException exception){
+            progress.fail(row, ROLE_NOT_VALID, maximumErrors);
+            return null;
+        }
+
+        return row;
+    }
+
+    //    RFC 4180 within one line: quoted fields may hold commas and doubled quotes, not line breaks.
+    private static List<String> parseCsvLine(String line) {
+
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for(int i = 0; i < line.length(); i++){
+            char character = line.charAt(i);
+
+            if(quoted){
+                if(character == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"'){
+                    value.append('"');
+                    i++;
+                } else if(character == '"'){
+                    quoted = false;
+                } else{
+                    value.append(character);
+                }
+            } else if(character == '"'){
+                quoted = true;
+            } else if(character == ','){
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else{
+                value.append(character);
+            }
+        }
+
+        if(quoted){
+            throw new IllegalArgumentException(ROW_NOT_VALID);
+        }
+
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    private static User toUser(Row row) {
+
+        return User.builder()
+                   .userId(RandomStringUtils.randomNumeric(10))
+                   .firstName(row.firstName)
+                   .lastName(row.lastName)
+                   .username(row.username)
+                   .email(row.email)
+                   .password(row.encodedPassword)
+                   .joinDate(new Date())
+                   .isActive(row.active)
+                   .isNotLocked(row.notLocked)
+                   .role(row.role.name())
+                   .authorities(row.role.getAuthorities())
+                   .profileImageUrl(ServletUriComponentsBuilder.fromCurrentContextPath()
+                                                               .path(DEFAULT_USER_IMAGE_PATH + FORWARD_SLASH + row.username)
+                                                               .toUriString())
+                   .build();
+    }
+
+    private static String conflictMessage(DataIntegrityViolationException exception) {
+
+        String cause = String.valueOf(exception.getMostSpecificCause().getMessage()).toUpperCase();
+
+        if(cause.contains(EMAIL_UNIQUE_CONSTRAINT)){
+            return THIS_EMAIL_ADDRESS_ALREADY_EXISTS;
+        }
+
+        return cause.contains(USERNAME_UNIQUE_CONSTRAINT) ? THIS_USERNAME_ALREADY_EXISTS : ROW_NOT_VALID;
+    }
+
+    private static final class Row {
+
+        private final long line;
+        private final String firstName;
+        private final String lastName;
+        private final String username;
+        private final String email;
+        private final String password; // Optional. Without one, a random password is set and the user resets it.
+        private final boolean active;
+        private final boolean notLocked;
+        private Role role;
+        private String encodedPassword;
+
+        private Row(long line, Function<String, String> fields) {
+            this.line = line;
+            this.firstName = fields.apply("firstName");
+            this.lastName = fields.apply("lastName");
+            this.username = StringUtils.trimToNull(fields.apply("username"));
+            this.email = StringUtils.trimToNull(fields.apply("email"));
+            this.password = StringUtils.defaultIfEmpty(fields.apply("password"), null);
+            this.active = !"false".equalsIgnoreCase(fields.apply("active")); // Active and not locked unless the row says otherwise.
+            this.notLocked = !"false".equalsIgnoreCase(fields.apply("notLocked"));
+        }
+    }
+
+    private static final class Progress {
+
+        private long rows;
+        private long imported;
+        private long failed;
+        private final List<ImportError> errors = new ArrayList<>();
+
+        private void fail(Row row, String message, int maximumErrors) {
+            fail(row.line, row.username, message, maximumErrors);
+        }
+
+        private void fail(long line, String username, String message, int maximumErrors) {
+            failed++;
+            if(errors.size() < maximumErrors){
+                errors.add(new ImportError(line, username, message));
+            }
+        }
+    }
+}
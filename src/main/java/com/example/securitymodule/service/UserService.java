@@ -1,32 +1,42 @@
 package com.example.securitymodule.service;
 
+import com.example.securitymodule.domain.BulkUpdateResult;
+import com.example.securitymodule.domain.BulkUserUpdate;
 import com.example.securitymodule.domain.User;
+import com.example.securitymodule.domain.UserPage;
 import com.example.securitymodule.exception.domain.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.mail.MessagingException;
 import java.io.IOException;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface UserService {
 
-    User register(String firstName, String lastName, String username, String email) throws UserNotFoundException, UsernameExistsException, EmailExistsException, MessagingException, EmailNotValidException, UsernameNotValidException;
+    CompletableFuture<User> login(UsernamePasswordAuthenticationToken authenticationToken) throws ServerBusyException;
 
-    List<User> getUsers();
+    CompletableFuture<User> register(String firstName, String lastName, String username, String email) throws UserNotFoundException, UsernameExistsException, EmailExistsException, MessagingException, EmailNotValidException, UsernameNotValidException, ServerBusyException;
+
+    UserPage getUsers();
+
+    UserPage getUsers(String cursor, Integer size, String role, String authority, Boolean active, Boolean locked) throws CursorNotValidException;
+
+    BulkUpdateResult updateUsers(BulkUserUpdate update) throws BulkUpdateNotValidException;
 
     User findUserByUsername(String username);
 
     User findUserByEmail(String email);
 
-    User addNewUser(String firstName, String lastName, String username, String email, String role,
-                    boolean isNotLocked, boolean isActive, MultipartFile profileImage) throws UserNotFoundException, UsernameExistsException, EmailExistsException, IOException, EmailNotValidException, UsernameNotValidException;
+    CompletableFuture<User> addNewUser(String firstName, String lastName, String username, String email, String role,
+                    boolean isNotLocked, boolean isActive, MultipartFile profileImage) throws UserNotFoundException, UsernameExistsException, EmailExistsException, IOException, EmailNotValidException, UsernameNotValidException, ServerBusyException;
 
     User updateUser(String currentUsername, String newFirstName, String newLastName, String newUsername,
                     String newEmail, String newRole, boolean isNotLocked, boolean isActive, MultipartFile profileImage) throws UserNotFoundException, UsernameExistsException, EmailExistsException, IOException, EmailNotValidException, UsernameNotValidException;
 
     void deleteUser(long id);
 
-    void resetPassword(String email) throws EmailNotFoundException, MessagingException;
+    CompletableFuture<Void> resetPassword(String email) throws EmailNotFoundException, MessagingException, ServerBusyException;
 
     User updateProfileImage(String username, MultipartFile profileImage) throws UserNotFoundException, UsernameExistsException, EmailExistsException, IOException, EmailNotValidException, UsernameNotValidException;
 }
@@ -1,10 +1,16 @@
 package com.example.securitymodule.service;
 
+import com.example.securitymodule.domain.BulkUpdateResult;
+import com.example.securitymodule.domain.BulkUserUpdate;
 import com.example.securitymodule.domain.User;
+import com.example.securitymodule.domain.UserPage;
 import com.example.securitymodule.domain.UserPrincipal;
+import com.example.securitymodule.domain.UserSummary;
 import com.example.securitymodule.enumeration.Role;
 import com.example.securitymodule.exception.domain.*;
 import com.example.securitymodule.repository.UserRepository;
+import com.example.securitymodule.utility.AuthorityBitmask;
+import com.example.securitymodule.utility.UserCache;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -12,23 +18,39 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.validator.routines.EmailValidator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.AuthenticationEventPublisher;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.mail.MessagingException;
 import javax.transaction.Transactional;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 import static com.example.securitymodule.constant.FileConstant.*;
 import static com.example.securitymodule.constant.UserImplConstant.*;
@@ -38,31 +60,45 @@ import static com.example.securitymodule.constant.UserImplConstant.*;
 @Qualifier("userDetailsService")
 @AllArgsConstructor
 @Slf4j
-public class UserServiceImpl implements UserService, UserDetailsService {
+public class UserServiceImpl implements UserService, UserDetailsService, UserDetailsPasswordService {
+
+    private static final UserDetailsChecker ACCOUNT_STATUS_CHECKER = new AccountStatusUserDetailsChecker();
 
     @Autowired
     private UserRepository userRepository;
     @Autowired
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
-    @Autowired
     private LoginAttemptService loginAttemptService;
     @Autowired
     private EmailService emailService;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    @Autowired
+    private AuthorizationVersionService authorizationVersionService;
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+    @Autowired
+    private LastLoginService lastLoginService;
+    @Autowired
+    private UserCache userCache;
+    @Autowired
+    private UserAvailabilityService userAvailabilityService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private AuthenticationEventPublisher authenticationEventPublisher;
 
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
-        User user = userRepository.findUserByUsername(username);
+        User user = userCache.findByUsername(username);
 
         if(user == null) {
             log.error(NO_USER_FOUND_BY_USERNAME + username);
             throw new UsernameNotFoundException(NO_USER_FOUND_BY_USERNAME + username);
         } else {
-            validateLoginAttempt(user);
-            user.setLastLoginDateDisplay(user.getLastLoginDate());
-            user.setLastLoginDate(new Date());
-            userRepository.save(user);
+            user = validateLoginAttempt(lastLoginService.overlay(user));
+            lastLoginService.recordLogin(user);
 
             UserPrincipal userPrincipal = new UserPrincipal(user);
             log.info(USER_FOUND_BY_USERNAME + username);
@@ -71,90 +107,238 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         }
     }
 
+    //    Called by Spring Security after a successful login, when the stored hash has a lower cost than the encoder.
     @Override
-    public User register(String firstName, String lastName, String username, String email)
-            throws UserNotFoundException, UsernameExistsException, EmailExistsException, MessagingException, EmailNotValidException, UsernameNotValidException {
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+
+        User user = userRepository.findUserByUsername(userDetails.getUsername());
 
-        validateNewUsernameAndEmail(StringUtils.EMPTY, username, email);
+        if(user == null){
+            return userDetails;
+        }
+
+        user.setPassword(newPassword); // Already encoded with the current strength.
+        userRepository.save(user);
+        userCache.evict(user);
+        log.info(PASSWORD_HASH_UPGRADED + user.getUsername());
+
+        return new UserPrincipal(user);
+    }
+
+    //    What AuthenticationManager.authenticate does for a password, split so that only BCrypt runs on the hashing pool. The user is
+    //    read on the caller's thread, the hash upgrade, events and the read of the logged in user run on an application task thread.
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public CompletableFuture<User> login(UsernamePasswordAuthenticationToken authenticationToken) throws ServerBusyException {
+
+        UserPrincipal userPrincipal = findUserForLogin(authenticationToken);
+        String password = authenticationToken.getCredentials() == null ? null : authenticationToken.getCredentials().toString();
+
+        return passwordHashingService.checkPassword(password, userPrincipal == null ? null : userPrincipal.getPassword())
+                                     .thenApply(encodedPassword -> {
+                                         if(encodedPassword == null){
+                                             throw loginFailed(new BadCredentialsException(BAD_CREDENTIALS), authenticationToken);
+                                         }
+
+                                         if(!encodedPassword.equals(userPrincipal.getPassword())){
+                                             updatePassword(userPrincipal, encodedPassword);
+                                         }
+
+                                         UsernamePasswordAuthenticationToken authenticated =
+                                                 new UsernamePasswordAuthenticationToken(userPrincipal, null, userPrincipal.getAuthorities());
+                                         authenticated.setDetails(authenticationToken.getDetails());
+                                         authenticationEventPublisher.publishAuthenticationSuccess(authenticated);
+
+                                         return findUserByUsername(userPrincipal.getUsername());
+                                     });
+    }
+
+    //    No transaction around BCrypt: it runs for a good part of a second and would hold a connection all along.
+    //    saveUser inserts in the repository's own transaction, rolled back if the username or email is taken.
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public CompletableFuture<User> register(String firstName, String lastName, String username, String email)
+            throws UserNotFoundException, UsernameExistsException, EmailExistsException, MessagingException, EmailNotValidException, UsernameNotValidException, ServerBusyException {
+
+        validateUsernameAndEmail(username, email);
+        validateAvailability(username, email); // Before hashing. Usually answered from memory.
 
         String password = generatePassword();
-        String encodedPassword = encodePassword(password);
-
-        User user = User.builder()
-                .userId(generateUserId())
-                .firstName(firstName)
-                .lastName(lastName)
-                .username(username)
-                .email(email)
-                .joinDate(new Date())
-                .password(encodedPassword)
-                .isActive(true)
-                .isNotLocked(true)
-                .role(Role.ROLE_USER.name())
-                .authorities(Role.ROLE_USER.getAuthorities())
-                .profileImageUrl(getTemporaryProfileImageUrl(username))
-                .build();
-
-        userRepository.save(user); // Save new User in the database.
-        log.info("PASSWORD " + password);
-//        emailService.sendNewPasswordEmail(firstName, password, email); // Send to User the password by email.
-        return user;
+        String profileImageUrl = getTemporaryProfileImageUrl(username); // Needs the request, so on the caller's thread.
+
+        return encodePassword(password).thenApply(encodedPassword -> {
+            User user = User.builder()
+                    .userId(generateUserId())
+                    .firstName(firstName)
+                    .lastName(lastName)
+                    .username(username)
+                    .email(email)
+                    .joinDate(new Date())
+                    .password(encodedPassword)
+                    .isActive(true)
+                    .isNotLocked(true)
+                    .role(Role.ROLE_USER.name())
+                    .authorities(Role.ROLE_USER.getAuthorities())
+                    .profileImageUrl(profileImageUrl)
+                    .build();
+
+            try {
+                saveUser(user); // Save new User in the database.
+            } catch (UsernameExistsException | EmailExistsException exception){
+                throw new CompletionException(exception);
+            }
+
+            userAvailabilityService.addUser(username, email);
+            userCache.evict(user); // Drops the cached "not found" for this username and email.
+            log.info("PASSWORD " + password);
+//            emailService.sendNewPasswordEmail(firstName, password, email); // Send to User the password by email.
+            return user;
+        });
     }
 
     @Override
-    public List<User> getUsers() {
-        return userRepository.findAll();
+    public UserPage getUsers() {
+        return findUsers(0, USER_LIST_LIMIT, null, null, null, null);
+    }
+
+    @Override
+    public UserPage getUsers(String cursor, Integer size, String role, String authority, Boolean active, Boolean locked) throws CursorNotValidException {
+
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAXIMUM_PAGE_SIZE));
+        String roleName = StringUtils.isBlank(role) ? null : role.toUpperCase();
+        Boolean notLocked = locked == null ? null : !locked;
+
+        return findUsers(decodeCursor(cursor), pageSize, roleName, authority, active, notLocked);
+    }
+
+    private UserPage findUsers(long afterId, int pageSize, String role, String authority, Boolean active, Boolean notLocked) {
+
+        PageRequest limit = PageRequest.of(0, pageSize + 1); // One more tells us whether there is a next page.
+        List<UserSummary> users;
+
+        if(StringUtils.isBlank(authority)){
+            users = userRepository.findUserSummaries(afterId, role, active, notLocked, limit);
+        } else{
+            List<Integer> masks = AuthorityBitmask.masksWith(authority);
+            users = masks.isEmpty() ? new ArrayList<>() : userRepository.findUserSummariesByAuthority(afterId, masks, role, active, notLocked, limit); // No such authority, no users.
+        }
+        String nextCursor = null;
+
+        if(users.size() > pageSize){
+            users = users.subList(0, pageSize);
+            nextCursor = encodeCursor(users.get(pageSize - 1).getId());
+        }
+
+        users.forEach(lastLoginService::overlay);
+        return new UserPage(users, nextCursor);
+    }
+
+    //    One UPDATE per chunk and change, each chunk in its own transaction, so a large group never holds its locks for long.
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public BulkUpdateResult updateUsers(BulkUserUpdate update) throws BulkUpdateNotValidException {
+
+        long start = System.currentTimeMillis();
+        Role role = validateBulkUpdate(update);
+        long matched = 0;
+        long updated = 0;
+
+        if(update.getIds() != null){
+            List<Long> ids = update.getIds().stream().distinct().collect(Collectors.toList());
+
+            for(int from = 0; from < ids.size(); from += BULK_UPDATE_CHUNK_SIZE){
+                List<UserSummary> users = userRepository.findUserSummariesByIds(ids.subList(from, Math.min(from + BULK_UPDATE_CHUNK_SIZE, ids.size())));
+                matched += users.size();
+                updated += updateChunk(users, role, update.getLocked(), update.getActive());
+            }
+        } else{
+            BulkUserUpdate.Filter filter = update.getFilter();
+            String filterRole = StringUtils.isBlank(filter.getRole()) ? null : filter.getRole().toUpperCase();
+            Boolean filterNotLocked = filter.getLocked() == null ? null : !filter.getLocked();
+            long afterId = 0;
+            List<UserSummary> users;
+
+            do{ // Seeks by id like /user/page, so users changed by an earlier chunk are never selected twice.
+                users = userRepository.findUserSummaries(afterId, filterRole, filter.getActive(), filterNotLocked, PageRequest.of(0, BULK_UPDATE_CHUNK_SIZE));
+
+                if(!users.isEmpty()){
+                    afterId = users.get(users.size() - 1).getId();
+                    matched += users.size();
+                    updated += updateChunk(users, role, update.getLocked(), update.getActive());
+                }
+            } while(users.size() == BULK_UPDATE_CHUNK_SIZE);
+        }
+
+        log.info(USERS_UPDATED_IN_BULK + updated + " of " + matched);
+        return new BulkUpdateResult(matched, updated, System.currentTimeMillis() - start);
     }
 
     @Override
     public User findUserByUsername(String username) {
-        return userRepository.findUserByUsername(username);
+        return lastLoginService.overlay(userCache.findByUsername(username));
     }
 
     @Override
     public User findUserByEmail(String email) {
-        return userRepository.findUserByEmail(email);
+        return lastLoginService.overlay(userCache.findByEmail(email));
     }
 
     @Override
-    public User addNewUser(String firstName, String lastName, String username,
-                           String email, String role, boolean isNotLocked,
-                           boolean isActive, MultipartFile profileImage)
-            throws UserNotFoundException, UsernameExistsException, EmailExistsException, IOException, EmailNotValidException, UsernameNotValidException {
-
-        validateNewUsernameAndEmail(StringUtils.EMPTY, username, email);
+    @Transactional(Transactional.TxType.NOT_SUPPORTED) // Like register, hashes before any transaction.
+    public CompletableFuture<User> addNewUser(String firstName, String lastName, String username,
+                                              String email, String role, boolean isNotLocked,
+                                              boolean isActive, MultipartFile profileImage)
+            throws UserNotFoundException, UsernameExistsException, EmailExistsException, IOException, EmailNotValidException, UsernameNotValidException, ServerBusyException {
+
+        validateUsernameAndEmail(username, email);
+        validateAvailability(username, email);
         String password = generatePassword();
-        String encodedPassword = encodePassword(password);
-
-        User user = User.builder()
-                .userId(generateUserId())
-                .firstName(firstName)
-                .lastName(lastName)
-                .joinDate(new Date())
-                .username(username)
-                .email(email)
-                .password(encodedPassword)
-                .isActive(true)
-                .isNotLocked(true)
-                .role(getRoleEnumName(role).name())
-                .authorities(getRoleEnumName(role).getAuthorities())
-                .profileImageUrl(getTemporaryProfileImageUrl(username))
-                .build();
-
-        userRepository.save(user);
-        saveProfileImage(user, profileImage);
+        String temporaryProfileImageUrl = getTemporaryProfileImageUrl(username); // Both need the request, so on the caller's thread.
+        String profileImageUrl = setProfileImageUrl(username);
+
+        return encodePassword(password).thenApply(encodedPassword -> {
+            User user = User.builder()
+                    .userId(generateUserId())
+                    .firstName(firstName)
+                    .lastName(lastName)
+                    .joinDate(new Date())
+                    .username(username)
+                    .email(email)
+                    .password(encodedPassword)
+                    .isActive(true)
+                    .isNotLocked(true)
+                    .role(getRoleEnumName(role).name())
+                    .authorities(getRoleEnumName(role).getAuthorities())
+                    .profileImageUrl(temporaryProfileImageUrl)
+                    .build();
+
+            try {
+                saveUser(user);
+                userAvailabilityService.addUser(username, email);
+                userCache.evict(user);
+                saveProfileImage(user, profileImage, profileImageUrl);
+            } catch (UsernameExistsException | EmailExistsException | IOException exception){
+                throw new CompletionException(exception);
+            }
 
-        return user;
+            return user;
+        });
     }
 
     @Override
+    @Transactional(rollbackOn = {UsernameExistsException.class, EmailExistsException.class})
     public User updateUser(String currentUsername, String newFirstName, String newLastName,
                            String newUsername, String newEmail, String newRole,
                            boolean isNotLocked, boolean isActive, MultipartFile profileImage)
             throws UserNotFoundException, UsernameExistsException, EmailExistsException, IOException, EmailNotValidException, UsernameNotValidException {
 
-        User currentUser = validateNewUsernameAndEmail(currentUsername, newUsername, newEmail);
-
+        validateUsernameAndEmail(newUsername, newEmail);
+        User currentUser = findExistingUser(currentUsername);
+        String oldUsername = currentUser.getUsername();
+        String oldEmail = currentUser.getEmail();
+        String oldRole = currentUser.getRole();
+        boolean wasActive = currentUser.isActive();
+        boolean wasNotLocked = currentUser.isNotLocked();
 
         currentUser.setFirstName(newFirstName);
         currentUser.setLastName(newLastName);
@@ -165,37 +349,69 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         currentUser.setRole(getRoleEnumName(newRole).name());
         currentUser.setAuthorities(getRoleEnumName(newRole).getAuthorities());
 
-        userRepository.save(currentUser);
+        if(!currentUser.getRole().equals(oldRole) || currentUser.isActive() != wasActive || currentUser.isNotLocked() != wasNotLocked){
+            authorizationVersionService.bumpVersion(currentUser); // Refresh tokens issued before this change must go through the database.
+        }
+        if(!oldUsername.equals(newUsername)){
+            authorizationVersionService.invalidate(oldUsername);
+        }
+
+        saveUser(currentUser);
+        userAvailabilityService.addUser(newUsername, newEmail);
+        userCache.evict(currentUser.getId(), oldUsername, oldEmail);
+        userCache.evict(currentUser); // The new username and email may be cached as "not found".
         saveProfileImage(currentUser, profileImage);
 
+        if(!currentUser.getRole().equals(oldRole) || !oldUsername.equals(newUsername)){
+            tokenRevocationService.revokeUser(oldUsername); // Tokens still carry the old role or username.
+        }
+
         return currentUser;
     }
 
     @Override
     public void deleteUser(long id) {
+        userRepository.findById(id).ifPresent(user -> {
+            tokenRevocationService.revokeUser(user.getUsername());
+            authorizationVersionService.invalidate(user.getUsername());
+            userCache.evict(user);
+        });
         userRepository.deleteById(id);
     }
 
     @Override
-    public void resetPassword(String email) throws EmailNotFoundException, MessagingException {
+    @Transactional(Transactional.TxType.NOT_SUPPORTED) // Hashes before any transaction, then writes the password alone.
+    public CompletableFuture<Void> resetPassword(String email) throws EmailNotFoundException, MessagingException, ServerBusyException {
 
-        User user = findUserByEmail(email);
+        User user = findUserByEmail(email); // Before hashing. Read only, the write below does not depend on it.
 
         if(user == null){
             throw new EmailNotFoundException(NO_USER_FOUND_BY_EMAIL);
         }
 
         String password = generatePassword();
-        user.setPassword(encodePassword(password));
-        userRepository.save(user);
-        emailService.sendNewPasswordEmail(user.getFirstName(), password, user.getEmail());
+
+        return encodePassword(password).thenAccept(encodedPassword -> {
+            Integer updated = transactionTemplate.execute(status -> userRepository.updatePassword(email, encodedPassword));
+
+            try {
+                if(updated == null || updated == 0){ // Deleted, or email changed, while hashing.
+                    throw new EmailNotFoundException(NO_USER_FOUND_BY_EMAIL);
+                }
+
+                userCache.evict(user);
+                emailService.sendNewPasswordEmail(user.getFirstName(), password, user.getEmail());
+            } catch (EmailNotFoundException | MessagingException exception){
+                throw new CompletionException(exception);
+            }
+        });
     }
 
     @Override
     public User updateProfileImage(String username, MultipartFile profileImage)
             throws UserNotFoundException, UsernameExistsException, EmailExistsException, IOException, EmailNotValidException, UsernameNotValidException {
 
-        User user = validateNewUsernameAndEmail(username, null, null);
+        User user = findExistingUser(username);
 
         saveProfileImage(user, profileImage);
 
@@ -203,6 +419,10 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     }
 
     private void saveProfileImage(User user, MultipartFile profileImage) throws IOException {
+        saveProfileImage(user, profileImage, setProfileImageUrl(user.getUsername()));
+    }
+
+    private void saveProfileImage(User user, MultipartFile profileImage, String profileImageUrl) throws IOException {
 
         if(profileImage != null){
             Path userFolder = Paths.get(USER_FOLDER + user.getUsername()).toAbsolutePath().normalize();
@@ -216,8 +436,9 @@ public class UserServiceImpl implements UserService, UserDetailsService {
             Files.copy(profileImage.getInputStream(), userFolder.resolve(user.getUsername() + DOT + JPG_EXTENSION),
                     StandardCopyOption.REPLACE_EXISTING);
 
-            user.setProfileImageUrl(setProfileImageUrl(user.getUsername()));
+            user.setProfileImageUrl(profileImageUrl);
             userRepository.save(user);
+            userCache.evict(user);
             log.info(FILE_SAVED_IN_FILE_SYSTEM + profileImage.getOriginalFilename());
         }
     }
@@ -233,16 +454,32 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         return Role.valueOf(role.toUpperCase());
     }
 
-    private void validateLoginAttempt(User user) {
+    private User validateLoginAttempt(User user) {
         if(user.isNotLocked()){
             if(loginAttemptService.hasExceededMaxAttempts(user.getUsername())){
-                user.setNotLocked(false);
-            } else{
-                user.setNotLocked(true);
+                return lockUser(user.getUsername()); // Locking the account is the only write a login still does synchronously.
             }
         } else{
             loginAttemptService.evictUserFromLoginAttemptCache(user.getUsername());
         }
+        return user;
+    }
+
+    //    Locks the current row, not the cached copy, which may be older than a write made on another node.
+    private User lockUser(String username) {
+
+        User user = userRepository.findUserByUsername(username);
+
+        if(user == null){ // Deleted since it was cached.
+            throw new UsernameNotFoundException(NO_USER_FOUND_BY_USERNAME + username);
+        }
+
+        user.setNotLocked(false);
+        authorizationVersionService.bumpVersion(user);
+        userRepository.save(user);
+        userCache.evict(user);
+
+        return lastLoginService.overlay(user);
     }
 
     private String getTemporaryProfileImageUrl(String username) {
@@ -256,22 +493,58 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         return RandomStringUtils.randomAlphanumeric(10);
     }
 
-    private String encodePassword(String password) {
-        return bCryptPasswordEncoder.encode(password);
+    private CompletableFuture<String> encodePassword(String password) throws ServerBusyException {
+        return passwordHashingService.encode(password); // On the bounded hashing pool, not on this request thread.
+    }
+
+    //    Null when there is no such user: the password is then checked against a dummy hash, and fails like a wrong one.
+    private UserPrincipal findUserForLogin(UsernamePasswordAuthenticationToken authenticationToken) {
+
+        try {
+            UserDetails userDetails = loadUserByUsername(authenticationToken.getName());
+            ACCOUNT_STATUS_CHECKER.check(userDetails); // Locked or disabled accounts fail before any hashing.
+            return (UserPrincipal) userDetails;
+        } catch (UsernameNotFoundException exception){
+            return null;
+        } catch (AuthenticationException exception){
+            throw loginFailed(exception, authenticationToken);
+        }
+    }
+
+    private AuthenticationException loginFailed(AuthenticationException exception, UsernamePasswordAuthenticationToken authenticationToken) {
+        authenticationEventPublisher.publishAuthenticationFailure(exception, authenticationToken); // Counts the failed attempt.
+        return exception;
+    }
+
+    //    The cursor is the last id of the page, opaque to clients so it can change without breaking them.
+    private static String encodeCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+    }
+
+    private static long decodeCursor(String cursor) throws CursorNotValidException {
+
+        if(StringUtils.isBlank(cursor)){
+            return 0; // The first page. Ids start at 1.
+        }
+
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if(bytes.length == Long.BYTES){
+                return ByteBuffer.wrap(bytes).getLong();
+            }
+        } catch (IllegalArgumentException exception){
+            // Not base64, handled below.
+        }
+
+        throw new CursorNotValidException(CURSOR_NOT_VALID);
     }
 
     private String generateUserId() {
         return RandomStringUtils.randomNumeric(10);
     }
 
-    //  This validation method will be used for creating a new account AND updating a new account.
-    private User validateNewUsernameAndEmail(String currentUsername,
-                                             String newUsername,
-                                             String newEmail)
-            throws UserNotFoundException, UsernameExistsException, EmailExistsException, UsernameNotValidException, EmailNotValidException {
-
-        User userByNewUsername = findUserByUsername(newUsername);
-        User userByNewEmail = findUserByEmail(newEmail);
+    //  Only the format is checked here. Whether the username or email is taken is decided by the unique constraints, see saveUser.
+    private void validateUsernameAndEmail(String newUsername, String newEmail) throws UsernameNotValidException, EmailNotValidException {
 
         if(newUsername instanceof String == false || newUsername.isBlank()){
             throw new UsernameNotValidException(USERNAME_NOT_VALID);
@@ -281,36 +554,112 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         if(!emailValidator.isValid(newEmail)){
             throw new EmailNotValidException(EMAIL_NOT_VALID);
         }
+    }
+
+    private Role validateBulkUpdate(BulkUserUpdate update) throws BulkUpdateNotValidException {
+
+        if((update.getIds() == null) == (update.getFilter() == null)){
+            throw new BulkUpdateNotValidException(BULK_UPDATE_WITHOUT_USERS);
+        }
+        if(update.getIds() != null && update.getIds().size() > BULK_UPDATE_MAXIMUM_IDS){
+            throw new BulkUpdateNotValidException(BULK_UPDATE_TOO_MANY_IDS + BULK_UPDATE_MAXIMUM_IDS);
+        }
+        if(StringUtils.isBlank(update.getRole()) && update.getLocked() == null && update.getActive() == null){
+            throw new BulkUpdateNotValidException(BULK_UPDATE_WITHOUT_CHANGES);
+        }
 
-        //  If "currentUsername" is blank, we're dealing with a new user, so we skip this part.
-        if(StringUtils.isNotBlank(currentUsername)){
+        try {
+            return StringUtils.isBlank(update.getRole()) ? null : getRoleEnumName(update.getRole());
+        } catch (IllegalArgumentException exception){
+            throw new BulkUpdateNotValidException(ROLE_NOT_VALID);
+        }
+    }
 
-            User currentUser = findUserByUsername(currentUsername);
+    //    Only users that actually change are updated, so the others keep their tokens and cache entries.
+    private int updateChunk(List<UserSummary> users, Role role, Boolean locked, Boolean active) {
 
-            if(currentUser == null){
-                throw new UserNotFoundException(NO_USER_FOUND_BY_USERNAME + currentUsername);
-            }
+        Set<UserSummary> changedRole = users.stream().filter(user -> role != null && !role.name().equals(user.getRole())).collect(Collectors.toSet());
+        Set<UserSummary> changedLock = users.stream().filter(user -> locked != null && user.isNotLocked() == locked).collect(Collectors.toSet());
+        Set<UserSummary> changedActive = users.stream().filter(user -> active != null && user.isActive() != active).collect(Collectors.toSet());
 
-            if(userByNewUsername != null && !currentUser.getId().equals(userByNewUsername.getId())){
-                throw new UsernameExistsException(THIS_USERNAME_ALREADY_EXISTS);
+        transactionTemplate.executeWithoutResult(status -> {
+            if(!changedRole.isEmpty()){
+                userRepository.updateRole(idsOf(changedRole), role.name(), AuthorityBitmask.toKnownMask(role.getAuthorities()));
+            }
+            if(!changedLock.isEmpty()){
+                userRepository.updateNotLocked(idsOf(changedLock), !locked);
+            }
+            if(!changedActive.isEmpty()){
+                userRepository.updateActive(idsOf(changedActive), active);
             }
+        });
 
-            if(userByNewEmail != null && !currentUser.getId().equals(userByNewEmail.getId())){
-                throw new EmailExistsException(THIS_EMAIL_ADDRESS_ALREADY_EXISTS);
+        List<UserSummary> changed = users.stream()
+                                         .filter(user -> changedRole.contains(user) || changedLock.contains(user) || changedActive.contains(user))
+                                         .collect(Collectors.toList());
+
+        for(UserSummary user : changed){ // After the commit, so nothing reloads the old values.
+            userCache.evict(user.getId(), user.getUsername(), user.getEmail());
+            authorizationVersionService.invalidate(user.getUsername()); // The version was bumped in the database.
+
+            if(Boolean.FALSE.equals(locked)){
+                loginAttemptService.evictUserFromLoginAttemptCache(user.getUsername()); // Or the next login locks it again.
             }
+            if(changedRole.contains(user) || Boolean.TRUE.equals(locked) || Boolean.FALSE.equals(active)){
+                tokenRevocationService.revokeUser(user.getUsername()); // Tokens carry the old role, or must stop working now.
+            }
+        }
+
+        return changed.size();
+    }
+
+    private static List<Long> idsOf(Set<UserSummary> users) {
+
+        List<Long> ids = new ArrayList<>(users.size());
+        users.forEach(user -> ids.add(user.getId()));
+        return ids;
+    }
+
+    //  A fast way out for taken names. The unique constraints still decide, this only saves the password hash.
+    private void validateAvailability(String username, String email) throws UsernameExistsException, EmailExistsException {
+
+        if(!userAvailabilityService.isUsernameAvailable(username)){
+            throw new UsernameExistsException(THIS_USERNAME_ALREADY_EXISTS);
+        }
+
+        if(!userAvailabilityService.isEmailAvailable(email)){
+            throw new EmailExistsException(THIS_EMAIL_ADDRESS_ALREADY_EXISTS);
+        }
+    }
+
+    //    For read-modify-write only: the row itself, never the cached copy, so a change is never made on stale data.
+    private User findExistingUser(String username) throws UserNotFoundException {
+
+        User user = lastLoginService.overlay(userRepository.findUserByUsername(username));
 
-            return currentUser;
-        } else{ // This is a new user. Now we make sure that email and username are not taken.
+        if(user == null){
+            throw new UserNotFoundException(NO_USER_FOUND_BY_USERNAME + username);
+        }
+
+        return user;
+    }
 
-            if(userByNewUsername != null){
+    //  One insert or update, no existence queries before it. Two concurrent signups for the same username cannot both succeed.
+    private User saveUser(User user) throws UsernameExistsException, EmailExistsException {
+
+        try {
+            return userRepository.saveAndFlush(user); // Flushed now, so a violation surfaces here and not at commit.
+        } catch (DataIntegrityViolationException exception){
+            String cause = String.valueOf(exception.getMostSpecificCause().getMessage()).toUpperCase(); // Names the constraint on H2, PostgreSQL and MySQL.
+
+            if(cause.contains(USERNAME_UNIQUE_CONSTRAINT)){
                 throw new UsernameExistsException(THIS_USERNAME_ALREADY_EXISTS);
             }
-
-            if(userByNewEmail != null){
+            if(cause.contains(EMAIL_UNIQUE_CONSTRAINT)){
                 throw new EmailExistsException(THIS_EMAIL_ADDRESS_ALREADY_EXISTS);
             }
 
-            return null;
+            throw exception;
         }
     }
 }
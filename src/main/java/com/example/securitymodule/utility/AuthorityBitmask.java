@@ -0,0 +1,117 @@
+package com.example.securitymodule.utility;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.securitymodule.constant.Authority.ALL_AUTHORITIES;
+
+//  Maps each authority from Authority.ALL_AUTHORITIES to one bit, and every mask to one shared, immutable authority list.
+public final class AuthorityBitmask {
+
+    public static final int UNKNOWN = -1; // Returned when an authority has no bit, so the caller keeps the string form.
+
+    private static final Map<String, Integer> BITS = new HashMap<>();
+    private static final List<List<GrantedAuthority>> AUTHORITY_LISTS = new ArrayList<>();
+    private static final List<String[]> AUTHORITY_NAMES = new ArrayList<>();
+    private static final int ALL_BITS = (1 << ALL_AUTHORITIES.length) - 1;
+
+    static {
+        for(int bit = 0; bit < ALL_AUTHORITIES.length; bit++){
+            BITS.put(ALL_AUTHORITIES[bit], bit);
+        }
+
+        for(int mask = 0; mask <= ALL_BITS; mask++){ // Only 2^n lists, built once for the whole application.
+            List<GrantedAuthority> authorities = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for(int bit = 0; bit < ALL_AUTHORITIES.length; bit++){
+                if((mask & (1 << bit)) != 0){
+                    authorities.add(new SimpleGrantedAuthority(ALL_AUTHORITIES[bit]));
+                    names.add(ALL_AUTHORITIES[bit]);
+                }
+            }
+            AUTHORITY_LISTS.add(Collections.unmodifiableList(authorities));
+            AUTHORITY_NAMES.add(names.toArray(new String[0]));
+        }
+    }
+
+    private AuthorityBitmask() {
+    }
+
+    public static int toMask(String[] authorities) {
+
+        if(authorities == null){
+            return 0;
+        }
+
+        int mask = 0;
+
+        for(String authority : authorities){
+            Integer bit = BITS.get(authority);
+            if(bit == null){
+                return UNKNOWN;
+            }
+            mask |= 1 << bit;
+        }
+
+        return mask;
+    }
+
+    //    For masks stored in the database, where every authority must have a bit.
+    public static int toKnownMask(String[] authorities) {
+
+        int mask = toMask(authorities);
+
+        if(mask == UNKNOWN){
+            throw new IllegalArgumentException("Authority without a bit in Authority.ALL_AUTHORITIES: " + String.join(",", authorities));
+        }
+
+        return mask;
+    }
+
+    //    A new array on each call, the shared one never leaves this class.
+    public static String[] toAuthorityNames(int mask) {
+        return AUTHORITY_NAMES.get(mask & ALL_BITS).clone();
+    }
+
+    //    Every mask that holds this authority. There are only 2^n masks, so a query can list them instead of masking bits.
+    public static List<Integer> masksWith(String authority) {
+
+        Integer bit = BITS.get(authority);
+        List<Integer> masks = new ArrayList<>();
+
+        for(int mask = 0; bit != null && mask <= ALL_BITS; mask++){
+            if((mask & (1 << bit)) != 0){
+                masks.add(mask);
+            }
+        }
+
+        return masks;
+    }
+
+    public static List<GrantedAuthority> toAuthorities(int mask) {
+        return AUTHORITY_LISTS.get(mask & ALL_BITS); // Bits we don't know are ignored.
+    }
+
+    //    Uses the shared list when every authority has a bit, otherwise builds a new list.
+    public static List<GrantedAuthority> toAuthorities(String[] authorities) {
+
+        int mask = toMask(authorities);
+
+        if(mask != UNKNOWN){
+            return toAuthorities(mask);
+        }
+
+        List<GrantedAuthority> grantedAuthorities = new ArrayList<>(authorities.length);
+        for(String authority : authorities){
+            grantedAuthorities.add(new SimpleGrantedAuthority(authority));
+        }
+
+        return Collections.unmodifiableList(grantedAuthorities);
+    }
+}
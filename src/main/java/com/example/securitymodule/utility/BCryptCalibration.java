@@ -0,0 +1,58 @@
+package com.example.securitymodule.utility;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import static com.example.securitymodule.constant.SecurityConstant.BCRYPT_CALIBRATED;
+import static com.example.securitymodule.constant.SecurityConstant.BCRYPT_OVER_BUDGET;
+
+//  Picks the strongest BCrypt cost that still hashes within the latency budget on this host.
+@Slf4j
+public final class BCryptCalibration {
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample";
+    private static final int SAMPLES = 3; // The fastest of a few runs, so one GC pause or a noisy neighbour does not skew it.
+
+    private BCryptCalibration() {
+    }
+
+    public static int calibrateStrength(long budgetMillis, int minimumStrength, int maximumStrength) {
+
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(minimumStrength)); // Warm-up, the first run also pays for class loading and JIT.
+
+        int strength = minimumStrength;
+        long millis = measure(strength);
+
+        if(millis > budgetMillis){
+            log.warn(BCRYPT_OVER_BUDGET + strength + " (" + millis + " ms)");
+            return strength; // Never go below the minimum, even on slow hardware.
+        }
+
+        //  Each step doubles the work, so only measure the next cost if its estimate still fits.
+        while(strength < maximumStrength && millis * 2 <= budgetMillis){
+            long next = measure(strength + 1);
+            if(next > budgetMillis){
+                break;
+            }
+            strength++;
+            millis = next;
+        }
+
+        log.info(BCRYPT_CALIBRATED + strength + " (" + millis + " ms, budget " + budgetMillis + " ms)");
+        return strength;
+    }
+
+    private static long measure(int strength) {
+
+        String salt = BCrypt.gensalt(strength);
+        long best = Long.MAX_VALUE;
+
+        for(int sample = 0; sample < SAMPLES; sample++){
+            long start = System.nanoTime();
+            BCrypt.hashpw(SAMPLE_PASSWORD, salt);
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        return best;
+    }
+}
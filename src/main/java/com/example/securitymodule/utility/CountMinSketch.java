@@ -0,0 +1,63 @@
+package com.example.securitymodule.utility;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+//  Approximate counts for any number of keys in fixed memory. Estimates can only be too high, never too low,
+//  and by at most about (total count * e / width) with high probability.
+public final class CountMinSketch {
+
+    private final int depth;
+    private final int width; // A power of two, so a row index is a mask instead of a division.
+    private final AtomicIntegerArray counters; // depth rows of width counters, incremented without locks.
+
+    public CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        this.width = Integer.bitCount(width) == 1 ? width : Integer.highestOneBit(width) << 1;
+        this.counters = new AtomicIntegerArray(this.depth * this.width);
+    }
+
+    //    Counts one occurrence and returns the new estimate.
+    public int add(String key) {
+
+        long hash = hash(key);
+        int estimate = Integer.MAX_VALUE;
+
+        for(int row = 0; row < depth; row++){
+            estimate = Math.min(estimate, counters.incrementAndGet(index(hash, row)));
+        }
+
+        return estimate;
+    }
+
+    public int estimate(String key) {
+
+        long hash = hash(key);
+        int estimate = Integer.MAX_VALUE;
+
+        for(int row = 0; row < depth; row++){
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+
+        return estimate;
+    }
+
+    //    Halves every counter, so old activity fades out and the counts follow the recent rate.
+    public void decay() {
+        for(int i = 0; i < counters.length(); i++){
+            counters.getAndUpdate(i, count -> count >>> 1);
+        }
+    }
+
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return row * width + ((h1 + row * h2) & (width - 1)); // One hash gives every row its own position (Kirsch-Mitzenmacher).
+    }
+
+    private static long hash(String key) {
+        return Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+}
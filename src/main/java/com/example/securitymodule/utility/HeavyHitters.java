@@ -0,0 +1,68 @@
+package com.example.securitymodule.utility;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//  The "k" most frequent keys, found with a Count-Min sketch. Only those k keys are ever stored.
+public final class HeavyHitters {
+
+    private final CountMinSketch sketch;
+    private final int k;
+    private final Map<String, Integer> top = new ConcurrentHashMap<>();
+    private volatile int threshold; // The smallest count in a full top, a new key must beat it to get in.
+
+    public HeavyHitters(int depth, int width, int k) {
+        this.sketch = new CountMinSketch(depth, width);
+        this.k = k;
+    }
+
+    public int add(String key) {
+
+        int estimate = sketch.add(key);
+
+        if(top.replace(key, estimate) == null && (top.size() < k || estimate > threshold)){ // Most keys stop here, without a lock.
+            offer(key, estimate);
+        }
+
+        return estimate;
+    }
+
+    public int estimate(String key) {
+        return sketch.estimate(key);
+    }
+
+    //    Most frequent first.
+    public List<Map.Entry<String, Integer>> getTop() {
+
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(top.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+
+        return entries;
+    }
+
+    public synchronized void decay() {
+
+        sketch.decay();
+        top.replaceAll((key, count) -> count >>> 1);
+        top.values().removeIf(count -> count == 0);
+        updateThreshold();
+    }
+
+    private synchronized void offer(String key, int estimate) {
+
+        top.put(key, estimate);
+
+        if(top.size() > k){
+            top.entrySet().stream().min(Comparator.comparingInt(Map.Entry::getValue)).ifPresent(smallest -> top.remove(smallest.getKey()));
+        }
+
+        updateThreshold();
+    }
+
+    private void updateThreshold() {
+        threshold = top.size() < k ? 0 : top.values().stream().mapToInt(Integer::intValue).min().orElse(0);
+    }
+}
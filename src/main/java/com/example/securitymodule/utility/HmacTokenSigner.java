@@ -0,0 +1,173 @@
+package com.example.securitymodule.utility;
+
+import com.auth0.jwt.impl.PublicClaims;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.securitymodule.constant.SecurityConstant.*;
+
+//  Signs HS512 tokens without java-jwt's builder and Jackson. The output is byte-identical to JWT.create()...sign()
+//  for the same claims, whatever the type or order of the map they come in.
+class HmacTokenSigner {
+
+    //    java-jwt writes its claims from a HashMap, in the order a HashMap gives their keys. We take that order once, from a
+    //    HashMap holding every claim we sign, put in the builders' order. Ten keys never resize it, so any subset of them
+    //    comes out of java-jwt in this same relative order.
+    private static final List<String> CLAIM_ORDER = claimOrder(PublicClaims.ISSUER, PublicClaims.AUDIENCE, PublicClaims.ISSUED_AT,
+            PublicClaims.JWT_ID, PublicClaims.SUBJECT, AUTHORITY_MASK, AUTHORITIES, AUTHORIZATION_VERSION, REFRESH_TOKEN_FAMILY,
+            PublicClaims.EXPIRES_AT);
+
+    private static final String HMAC_SHA512 = "HmacSHA512";
+    private static final String HS512 = "HS512";
+    private static final String JWT_TYPE = "JWT";
+    private static final char[] HEX_CHARS = "0123456789ABCDEF".toCharArray();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final byte[] encodedHeader; // The header never changes, so we encode it only once.
+    private final int encodedSignatureLength;
+    private final ThreadLocal<Mac> mac; // Mac is not thread-safe, each thread keeps its own.
+    private final ThreadLocal<StringBuilder> jsonBuffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    HmacTokenSigner(byte[] secret) {
+
+        SecretKeySpec key = new SecretKeySpec(secret, HMAC_SHA512);
+        this.mac = ThreadLocal.withInitial(() -> createMac(key));
+        this.encodedSignatureLength = (mac.get().getMacLength() * 4 + 2) / 3; // Base64 without padding.
+
+        Map<String, Object> headerClaims = new HashMap<>(); // Same keys and order as JWTCreator.sign().
+        headerClaims.put(PublicClaims.ALGORITHM, HS512);
+        headerClaims.put(PublicClaims.TYPE, JWT_TYPE);
+        this.encodedHeader = ENCODER.encode(writeJson(headerClaims, List.copyOf(headerClaims.keySet()), new StringBuilder()).toString()
+                                                    .getBytes(StandardCharsets.UTF_8));
+    }
+
+    String sign(Map<String, Object> payloadClaims) {
+
+        StringBuilder json = jsonBuffer.get();
+        json.setLength(0);
+        byte[] encodedPayload = ENCODER.encode(writeJson(payloadClaims, CLAIM_ORDER, json).toString().getBytes(StandardCharsets.UTF_8));
+
+        //  header.payload.signature, written straight into one buffer.
+        int signedLength = encodedHeader.length + 1 + encodedPayload.length;
+        byte[] token = new byte[signedLength + 1 + encodedSignatureLength];
+        System.arraycopy(encodedHeader, 0, token, 0, encodedHeader.length);
+        token[encodedHeader.length] = '.';
+        System.arraycopy(encodedPayload, 0, token, encodedHeader.length + 1, encodedPayload.length);
+        token[signedLength] = '.';
+
+        Mac hmac = mac.get();
+        hmac.update(token, 0, signedLength);
+        byte[] encodedSignature = ENCODER.encode(hmac.doFinal()); // doFinal() also resets the Mac for the next token.
+        System.arraycopy(encodedSignature, 0, token, signedLength + 1, encodedSignatureLength);
+
+        return new String(token, StandardCharsets.US_ASCII);
+    }
+
+    //    Writes the claims the same way java-jwt's PayloadSerializer does for our claim types, in the given key order.
+    private static StringBuilder writeJson(Map<String, Object> claims, List<String> order, StringBuilder json) {
+
+        json.append('{');
+        int written = 0;
+
+        for(String key : order){
+            Object value = claims.get(key);
+
+            if(value == null){
+                continue;
+            }
+            if(written++ > 0){
+                json.append(',');
+            }
+
+            writeString(key, json);
+            json.append(':');
+            writeValue(value, json);
+        }
+
+        if(written != claims.size()){ // A claim we do not know the place of would make the token differ from java-jwt's.
+            throw new IllegalArgumentException("Unsupported claims: " + claims.keySet());
+        }
+
+        return json.append('}');
+    }
+
+    private static List<String> claimOrder(String... claims) {
+
+        Map<String, Object> hashMap = new HashMap<>();
+
+        for(String claim : claims){
+            hashMap.put(claim, claim);
+        }
+
+        return List.copyOf(hashMap.keySet());
+    }
+
+    private static void writeValue(Object value, StringBuilder json) {
+
+        if(value instanceof String){
+            writeString((String) value, json);
+        } else if(value instanceof Date){
+            json.append(((Date) value).getTime() / 1000); // Dates are written in seconds.
+        } else if(value instanceof Long || value instanceof Integer){
+            json.append(value);
+        } else if(value instanceof String[]){
+            json.append('[');
+            String[] items = (String[]) value;
+            for(int i = 0; i < items.length; i++){
+                if(i > 0){
+                    json.append(',');
+                }
+                writeString(items[i], json);
+            }
+            json.append(']');
+        } else{
+            throw new IllegalArgumentException("Unsupported claim type: " + value.getClass().getName());
+        }
+    }
+
+    //    Same escaping as Jackson: quotes, backslashes and control characters only.
+    private static void writeString(String value, StringBuilder json) {
+
+        json.append('"');
+
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+
+            if(c == '"' || c == '\\'){
+                json.append('\\').append(c);
+            } else if(c < 0x20){
+                switch (c){
+                    case '\b': json.append("\\b"); break;
+                    case '\t': json.append("\\t"); break;
+                    case '\n': json.append("\\n"); break;
+                    case '\f': json.append("\\f"); break;
+                    case '\r': json.append("\\r"); break;
+                    default: json.append("\\u00").append(HEX_CHARS[c >> 4]).append(HEX_CHARS[c & 0xF]);
+                }
+            } else{
+                json.append(c);
+            }
+        }
+
+        json.append('"');
+    }
+
+    private static Mac createMac(SecretKeySpec key) {
+
+        try {
+            Mac mac = Mac.getInstance(HMAC_SHA512);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
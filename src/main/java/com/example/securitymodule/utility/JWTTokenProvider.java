@@ -1,27 +1,37 @@
 package com.example.securitymodule.utility;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import static com.example.securitymodule.constant.SecurityConstant.*;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.impl.PublicClaims;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.example.securitymodule.domain.UserPrincipal;
+import com.example.securitymodule.domain.VerifiedToken;
+import com.google.common.hash.HashCode;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.UUID;
 
 @Component // When the application starts, this will generate a JWTTokenProvider Bean.
 public class JWTTokenProvider {
@@ -29,39 +39,103 @@ public class JWTTokenProvider {
     @Value("${jwt.secret}")
     private String secret;
 
+    @Value("${jwt.fast-signing.enabled:true}")
+    private boolean fastSigningEnabled;
+
+    @Value("${jwt.authority-bitmask.enabled:false}")
+    private boolean authorityBitmaskEnabled;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    private Algorithm algorithm; // Both are immutable and thread-safe, so we build them once and share them.
+    private JWTVerifier verifier;
+    private HmacTokenSigner hmacTokenSigner; // Only set when fast signing is enabled.
+
+    @PostConstruct
+    private void init() {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        algorithm = jwtKeyRing.isAsymmetric() ? jwtKeyRing.getAlgorithm() : Algorithm.HMAC512(secretBytes); // RS256/ES256 add a "kid" header.
+        verifier = getJWTVerifier();
+
+        if(fastSigningEnabled && !jwtKeyRing.isAsymmetric()){ // The fast path only knows HS512.
+            hmacTokenSigner = new HmacTokenSigner(secretBytes);
+        }
+    }
+
     //    Generate the JWT Access Token
     public String generateJwtAccessToken(UserPrincipal userPrincipal){
 
-        String[] claims = getClaimsFromUser(userPrincipal);
+        return generateJwtAccessToken(userPrincipal.getUsername(), getClaimsFromUser(userPrincipal));
+    }
 
-        return JWT.create()
-                .withIssuer(WEBSITE_NAME)
-                .withAudience(WEBSITE_ADMINISTRATION)
-                .withIssuedAt(new Date())
-                .withSubject(userPrincipal.getUsername())
-                .withArrayClaim(AUTHORITIES, claims)
-                .withExpiresAt(new Date(System.currentTimeMillis() + ACCESS_EXPIRATION_TIME))
-                .sign(Algorithm.HMAC512(secret.getBytes()));
+    //    Generate the JWT Access Token from already known authorities (used by the token refresh)
+    public String generateJwtAccessToken(String username, String[] claims){
+
+        int authorityMask = authorityBitmaskEnabled ? AuthorityBitmask.toMask(claims) : AuthorityBitmask.UNKNOWN;
+        Date issuedAt = new Date();
+        Date expiresAt = new Date(issuedAt.getTime() + ACCESS_EXPIRATION_TIME);
+        String tokenId = UUID.randomUUID().toString(); // Lets us revoke this one token.
+
+        if(hmacTokenSigner != null){
+            return hmacTokenSigner.sign(accessTokenClaims(username, claims, authorityMask, issuedAt, expiresAt, tokenId));
+        }
+
+        return accessTokenBuilder(username, claims, authorityMask, issuedAt, expiresAt, tokenId).sign(algorithm);
     }
 
     //    Generate the JWT Refresh Token
-    public String generateJwtRefreshToken(UserPrincipal userPrincipal){
+    public String generateJwtRefreshToken(UserPrincipal userPrincipal, String familyId, String tokenId){
 
-        return JWT.create()
-                .withIssuer(WEBSITE_NAME)
-                .withAudience(WEBSITE_ADMINISTRATION)
-                .withIssuedAt(new Date())
-                .withSubject(userPrincipal.getUsername())
-                .withExpiresAt(new Date(System.currentTimeMillis() + REFRESH_EXPIRATION_TIME))
-                .sign(Algorithm.HMAC512(secret.getBytes()));
+        return generateJwtRefreshToken(userPrincipal.getUsername(), userPrincipal.getAuthorizationVersion(), familyId, tokenId);
+    }
+
+    //    Generate the JWT Refresh Token. The token id must be the one recorded for its family.
+    public String generateJwtRefreshToken(String username, long authorizationVersion, String familyId, String tokenId){
+
+        Date issuedAt = new Date();
+        Date expiresAt = new Date(issuedAt.getTime() + REFRESH_EXPIRATION_TIME);
+
+        if(hmacTokenSigner != null){
+            return hmacTokenSigner.sign(refreshTokenClaims(username, authorizationVersion, familyId, issuedAt, expiresAt, tokenId));
+        }
+
+        return refreshTokenBuilder(username, authorizationVersion, familyId, issuedAt, expiresAt, tokenId).sign(algorithm);
+    }
+
+    //    Verify the token once and read everything we need from it (subject, authorities, expiration).
+    public VerifiedToken verifyToken(String token){
+
+        HashCode cacheKey = null;
+
+        if(verifiedTokenCache.isEnabled()){
+            cacheKey = verifiedTokenCache.keyOf(token);
+            VerifiedToken cachedToken = verifiedTokenCache.get(cacheKey); // Hot tokens skip Base64, JSON and HMAC entirely.
+
+            if(cachedToken != null){
+                return cachedToken;
+            }
+        }
+
+        DecodedJWT decodedJWT = verifier.verify(token); // Throws if the signature, issuer or expiration date is not valid.
+        VerifiedToken verifiedToken = new VerifiedToken(decodedJWT.getId(), decodedJWT.getSubject(), getAuthorities(decodedJWT),
+                                                        decodedJWT.getIssuedAt(), decodedJWT.getExpiresAt(),
+                                                        decodedJWT.getClaim(AUTHORIZATION_VERSION).asLong(),
+                                                        decodedJWT.getClaim(REFRESH_TOKEN_FAMILY).asString());
+
+        if(cacheKey != null){
+            verifiedTokenCache.put(cacheKey, verifiedToken);
+        }
+
+        return verifiedToken;
     }
 
     //    Get the Authorities
     public List<GrantedAuthority> getAuthorities(String token){
 
-        String[] claims = getClaimsFromToken(token);
-
-        return Stream.of(claims).map(SimpleGrantedAuthority::new).collect(Collectors.toList());
+        return getAuthorities(verifier.verify(token));
     }
 
     //    Get Authentication
@@ -83,11 +157,15 @@ public class JWTTokenProvider {
     //    Validate Token
     public boolean isTokenValid(String username, String token){
 
-        JWTVerifier verifier = getJWTVerifier();
-
         return StringUtils.isNotEmpty(username) && !isTokenExpired(verifier, token); // Use Commons Lang3 Library for strings.
     }
 
+    //    Validate an already verified Token
+    public boolean isTokenValid(VerifiedToken verifiedToken){
+
+        return StringUtils.isNotEmpty(verifiedToken.getSubject()) && verifiedToken.getExpiresAt().after(new Date());
+    }
+
     //    Check Token's Expiration Date
     private boolean isTokenExpired(JWTVerifier verifier, String token) {
 
@@ -99,17 +177,80 @@ public class JWTTokenProvider {
     //    Get Subject
     public String getSubject(String token){
 
-        JWTVerifier verifier = getJWTVerifier();
-
         return verifier.verify(token).getSubject();
     }
 
+    //    The claims of both signing paths. HmacTokenSigner writes them in the order java-jwt's own HashMap gives them, so the
+    //    JSON comes out identical. HmacTokenSignerTests checks this for every claim type we use.
+    static Map<String, Object> accessTokenClaims(String username, String[] claims, int authorityMask, Date issuedAt, Date expiresAt, String tokenId) {
+
+        Map<String, Object> payloadClaims = new HashMap<>();
+        payloadClaims.put(PublicClaims.ISSUER, WEBSITE_NAME);
+        payloadClaims.put(PublicClaims.AUDIENCE, WEBSITE_ADMINISTRATION);
+        payloadClaims.put(PublicClaims.ISSUED_AT, issuedAt);
+        payloadClaims.put(PublicClaims.JWT_ID, tokenId);
+        payloadClaims.put(PublicClaims.SUBJECT, username);
+        if(authorityMask != AuthorityBitmask.UNKNOWN){
+            payloadClaims.put(AUTHORITY_MASK, authorityMask);
+        } else{
+            payloadClaims.put(AUTHORITIES, claims);
+        }
+        payloadClaims.put(PublicClaims.EXPIRES_AT, expiresAt);
+
+        return payloadClaims;
+    }
+
+    static JWTCreator.Builder accessTokenBuilder(String username, String[] claims, int authorityMask, Date issuedAt, Date expiresAt, String tokenId) {
+
+        JWTCreator.Builder builder = JWT.create()
+                .withIssuer(WEBSITE_NAME)
+                .withAudience(WEBSITE_ADMINISTRATION)
+                .withIssuedAt(issuedAt)
+                .withJWTId(tokenId)
+                .withSubject(username);
+
+        if(authorityMask != AuthorityBitmask.UNKNOWN){
+            builder.withClaim(AUTHORITY_MASK, authorityMask); // One small number instead of the whole authorities array.
+        } else{
+            builder.withArrayClaim(AUTHORITIES, claims);
+        }
+
+        return builder.withExpiresAt(expiresAt);
+    }
+
+    static Map<String, Object> refreshTokenClaims(String username, long authorizationVersion, String familyId, Date issuedAt, Date expiresAt, String tokenId) {
+
+        Map<String, Object> payloadClaims = new HashMap<>();
+        payloadClaims.put(PublicClaims.ISSUER, WEBSITE_NAME);
+        payloadClaims.put(PublicClaims.AUDIENCE, WEBSITE_ADMINISTRATION);
+        payloadClaims.put(PublicClaims.ISSUED_AT, issuedAt);
+        payloadClaims.put(PublicClaims.JWT_ID, tokenId);
+        payloadClaims.put(PublicClaims.SUBJECT, username);
+        payloadClaims.put(AUTHORIZATION_VERSION, authorizationVersion);
+        payloadClaims.put(REFRESH_TOKEN_FAMILY, familyId);
+        payloadClaims.put(PublicClaims.EXPIRES_AT, expiresAt);
+
+        return payloadClaims;
+    }
+
+    static JWTCreator.Builder refreshTokenBuilder(String username, long authorizationVersion, String familyId, Date issuedAt, Date expiresAt, String tokenId) {
+
+        return JWT.create()
+                .withIssuer(WEBSITE_NAME)
+                .withAudience(WEBSITE_ADMINISTRATION)
+                .withIssuedAt(issuedAt)
+                .withJWTId(tokenId)
+                .withSubject(username)
+                .withClaim(AUTHORIZATION_VERSION, authorizationVersion) // Lets the refresh skip the database.
+                .withClaim(REFRESH_TOKEN_FAMILY, familyId) // Lets the refresh detect a reused token.
+                .withExpiresAt(expiresAt);
+    }
+
     private JWTVerifier getJWTVerifier() {
 
         JWTVerifier verifier;
 
         try{
-            Algorithm algorithm = Algorithm.HMAC512(secret);
             verifier = JWT.require(algorithm).withIssuer(WEBSITE_NAME).build();
         } catch (JWTVerificationException exception){ // Do not use this "exception" when sending errors to the user.
             throw new JWTVerificationException(TOKEN_CANNOT_BE_VERIFIED);
@@ -129,10 +270,21 @@ public class JWTTokenProvider {
         return authorities.toArray(new String[0]);
     }
 
-    private String[] getClaimsFromToken(String token) {
+    //    Tokens carry either the compact mask or the old string array, we accept both.
+    private List<GrantedAuthority> getAuthorities(DecodedJWT decodedJWT) {
+
+        Claim authorityMask = decodedJWT.getClaim(AUTHORITY_MASK);
 
-        JWTVerifier verifier = getJWTVerifier();
+        if(!authorityMask.isNull()){
+            return AuthorityBitmask.toAuthorities(authorityMask.asInt());
+        }
+
+        String[] claims = decodedJWT.getClaim(AUTHORITIES).asArray(String.class);
+
+        if(claims == null){ // Refresh tokens do not carry any authorities.
+            return Collections.emptyList();
+        }
 
-        return verifier.verify(token).getClaim(AUTHORITIES).asArray(String.class);
+        return AuthorityBitmask.toAuthorities(claims);
     }
 }
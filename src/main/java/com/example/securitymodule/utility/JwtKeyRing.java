@@ -0,0 +1,280 @@
+package com.example.securitymodule.utility;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.ECDSAKeyProvider;
+import com.auth0.jwt.interfaces.RSAKeyProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ResourceUtils;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.securitymodule.constant.SecurityConstant.*;
+
+@Component
+@Slf4j
+public class JwtKeyRing { // Holds the signing keys by "kid", so tokens can be verified with the right key in O(1).
+
+    private static final String EC_CURVE = "secp256r1"; // Also known as P-256.
+    private static final int RSA_KEY_SIZE = 2048;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final String algorithmName;
+    private final String keyStorePath;
+    private final String keyStorePassword;
+    private final String activeKeyId;
+    private final boolean generateKeys;
+    private final Map<String, KeyPair> keys = new ConcurrentHashMap<>();
+    private final Map<String, Long> retiredKeys = new ConcurrentHashMap<>(); // kid -> when it stopped signing.
+    private volatile String currentKeyId;
+    private volatile List<Map<String, Object>> jwks = Collections.emptyList();
+
+    public JwtKeyRing(@Value("${jwt.algorithm:HS512}") String algorithmName,
+                      @Value("${jwt.key-ring.key-store:}") String keyStorePath,
+                      @Value("${jwt.key-ring.key-store-password:}") String keyStorePassword,
+                      @Value("${jwt.key-ring.active-key:}") String activeKeyId,
+                      @Value("${jwt.key-ring.generate-keys:false}") boolean generateKeys) throws Exception {
+        this.algorithmName = algorithmName.toUpperCase();
+        this.keyStorePath = keyStorePath;
+        this.keyStorePassword = keyStorePassword;
+        this.activeKeyId = activeKeyId;
+        this.generateKeys = generateKeys;
+
+        if(!isAsymmetric()){
+            return; // HS512 uses the shared "jwt.secret", there is nothing to publish.
+        }
+
+        if(StringUtils.isNotBlank(keyStorePath)){
+            loadKeyStore(); // Every node signs and verifies with the same keys, also after a restart.
+        } else if(generateKeys){
+            log.warn(GENERATED_SIGNING_KEYS);
+            rotate(); // Keys of this node only: its tokens fail on any other node and after a restart.
+        } else{
+            throw new IllegalStateException(KEY_STORE_REQUIRED + this.algorithmName);
+        }
+    }
+
+    public boolean isAsymmetric() {
+        return RS256.equals(algorithmName) || ES256.equals(algorithmName);
+    }
+
+    //    The algorithm signs with the current key and picks the verification key by the token's "kid".
+    public Algorithm getAlgorithm() {
+
+        switch (algorithmName){
+            case RS256: return Algorithm.RSA256(rsaKeyProvider());
+            case ES256: return Algorithm.ECDSA256(ecdsaKeyProvider());
+            default: throw new IllegalStateException("Unsupported JWT algorithm: " + algorithmName);
+        }
+    }
+
+    //    Public keys as a JWK Set, for resource servers that verify tokens locally.
+    public Map<String, Object> getJwks() {
+        return Collections.singletonMap("keys", jwks);
+    }
+
+    //    Generated keys are rotated on a schedule. Old keys keep verifying until every token they signed has expired.
+    @Scheduled(initialDelayString = "${jwt.key-ring.rotation-interval:86400000}",
+               fixedDelayString = "${jwt.key-ring.rotation-interval:86400000}")
+    public void scheduledRotation() throws GeneralSecurityException {
+
+        if(isAsymmetric() && StringUtils.isBlank(keyStorePath) && generateKeys){
+            rotate();
+        }
+    }
+
+    private synchronized void rotate() throws GeneralSecurityException {
+
+        long now = System.currentTimeMillis();
+        String keyId = UUID.randomUUID().toString();
+        keys.put(keyId, generateKeyPair());
+
+        if(currentKeyId != null){
+            retiredKeys.put(currentKeyId, now);
+        }
+        currentKeyId = keyId;
+
+        retiredKeys.entrySet().removeIf(retired -> {
+            boolean expired = retired.getValue() + REFRESH_EXPIRATION_TIME < now; // The longest living token we sign.
+            if(expired){
+                keys.remove(retired.getKey());
+            }
+            return expired;
+        });
+
+        publishJwks();
+        log.info(KEY_ROTATED + keyId);
+    }
+
+    private void loadKeyStore() throws Exception {
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        char[] password = keyStorePassword.toCharArray();
+
+        try(InputStream inputStream = ResourceUtils.getURL(keyStorePath).openStream()){
+            keyStore.load(inputStream, password);
+        }
+
+        Enumeration<String> aliases = keyStore.aliases();
+        while(aliases.hasMoreElements()){ // Every key entry is one key of the ring, the alias is its "kid".
+            String alias = aliases.nextElement();
+            Key privateKey = keyStore.getKey(alias, password);
+
+            if(privateKey instanceof PrivateKey && keyStore.getCertificate(alias) != null){
+                KeyPair keyPair = new KeyPair(keyStore.getCertificate(alias).getPublicKey(), (PrivateKey) privateKey);
+                checkKeyType(alias, keyPair);
+                keys.put(alias, keyPair);
+            }
+        }
+
+        currentKeyId = StringUtils.isNotBlank(activeKeyId) ? activeKeyId : keys.keySet().stream().sorted().reduce((first, last) -> last).orElse(null);
+
+        if(currentKeyId == null || !keys.containsKey(currentKeyId)){
+            throw new IllegalStateException(NO_SIGNING_KEY + keyStorePath);
+        }
+
+        publishJwks();
+    }
+
+    //    At startup, so a key of the wrong type fails here and not with a ClassCastException on the first token.
+    private void checkKeyType(String keyId, KeyPair keyPair) {
+
+        PublicKey publicKey = keyPair.getPublic();
+        boolean signs;
+
+        if(RS256.equals(algorithmName)){
+            signs = publicKey instanceof RSAPublicKey && keyPair.getPrivate() instanceof RSAPrivateKey;
+        } else{
+            signs = publicKey instanceof ECPublicKey && keyPair.getPrivate() instanceof ECPrivateKey
+                    && ((ECPublicKey) publicKey).getParams().getCurve().getField().getFieldSize() == 256; // P-256 only.
+        }
+
+        if(!signs){
+            throw new IllegalStateException(String.format(KEY_TYPE_NOT_VALID, keyId, publicKey.getAlgorithm(), algorithmName));
+        }
+    }
+
+    private KeyPair generateKeyPair() throws GeneralSecurityException {
+
+        if(RS256.equals(algorithmName)){
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(RSA_KEY_SIZE);
+            return generator.generateKeyPair();
+        }
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec(EC_CURVE));
+        return generator.generateKeyPair();
+    }
+
+    private void publishJwks() {
+
+        List<Map<String, Object>> publicKeys = new ArrayList<>();
+
+        for(Map.Entry<String, KeyPair> key : keys.entrySet()){
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kid", key.getKey());
+            jwk.put("use", "sig");
+
+            PublicKey publicKey = key.getValue().getPublic(); // "alg" and "kty" follow from the key itself.
+            if(publicKey instanceof RSAPublicKey){
+                RSAPublicKey rsaPublicKey = (RSAPublicKey) publicKey;
+                jwk.put("alg", RS256);
+                jwk.put("kty", "RSA");
+                jwk.put("n", encode(rsaPublicKey.getModulus(), 0));
+                jwk.put("e", encode(rsaPublicKey.getPublicExponent(), 0));
+            } else if(publicKey instanceof ECPublicKey){
+                ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+                jwk.put("alg", ES256);
+                jwk.put("kty", "EC");
+                jwk.put("crv", "P-256");
+                jwk.put("x", encode(ecPublicKey.getW().getAffineX(), 32));
+                jwk.put("y", encode(ecPublicKey.getW().getAffineY(), 32));
+            }
+
+            publicKeys.add(Collections.unmodifiableMap(jwk));
+        }
+
+        jwks = Collections.unmodifiableList(publicKeys);
+    }
+
+    //    Base64url of the unsigned big-endian value, left-padded to "length" bytes when needed.
+    private static String encode(BigInteger value, int length) {
+
+        byte[] bytes = value.toByteArray();
+        int start = bytes.length > 1 && bytes[0] == 0 ? 1 : 0; // Drop the sign byte.
+        int size = Math.max(bytes.length - start, length);
+        byte[] unsigned = new byte[size];
+        System.arraycopy(bytes, start, unsigned, size - (bytes.length - start), bytes.length - start);
+
+        return ENCODER.encodeToString(unsigned);
+    }
+
+    //    The casts below cannot fail: every key of the ring was checked against the algorithm when it was added.
+    private RSAKeyProvider rsaKeyProvider() {
+
+        return new RSAKeyProvider() {
+            @Override
+            public RSAPublicKey getPublicKeyById(String keyId) {
+                KeyPair keyPair = keyId == null ? null : keys.get(keyId);
+                return keyPair == null ? null : (RSAPublicKey) keyPair.getPublic();
+            }
+
+            @Override
+            public RSAPrivateKey getPrivateKey() {
+                return (RSAPrivateKey) keys.get(currentKeyId).getPrivate();
+            }
+
+            @Override
+            public String getPrivateKeyId() {
+                return currentKeyId;
+            }
+        };
+    }
+
+    private ECDSAKeyProvider ecdsaKeyProvider() {
+
+        return new ECDSAKeyProvider() {
+            @Override
+            public ECPublicKey getPublicKeyById(String keyId) {
+                KeyPair keyPair = keyId == null ? null : keys.get(keyId);
+                return keyPair == null ? null : (ECPublicKey) keyPair.getPublic();
+            }
+
+            @Override
+            public ECPrivateKey getPrivateKey() {
+                return (ECPrivateKey) keys.get(currentKeyId).getPrivate();
+            }
+
+            @Override
+            public String getPrivateKeyId() {
+                return currentKeyId;
+            }
+        };
+    }
+}
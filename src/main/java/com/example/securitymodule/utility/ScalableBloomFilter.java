@@ -0,0 +1,70 @@
+package com.example.securitymodule.utility;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//  A Bloom filter that grows: once a filter holds its expected number of keys, a new one twice as large and with half
+//  the false positive probability is added. The probabilities add up to at most the requested one (Almeida et al.).
+//  Thread-safe, Guava's BloomFilter is.
+public class ScalableBloomFilter {
+
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private final List<BloomFilter<CharSequence>> filters = new CopyOnWriteArrayList<>();
+    private volatile BloomFilter<CharSequence> current;
+    private volatile long currentCapacity;
+    private volatile double currentProbability;
+
+    public ScalableBloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        this.currentCapacity = Math.max(1, expectedInsertions);
+        this.currentProbability = falsePositiveProbability * (1 - TIGHTENING); // The series sums up to the requested probability.
+        this.current = create(currentCapacity, currentProbability);
+        this.filters.add(current);
+    }
+
+    public boolean mightContain(String key) {
+
+        for(BloomFilter<CharSequence> filter : filters){
+            if(filter.mightContain(key)){
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public void put(String key) {
+
+        if(current.approximateElementCount() >= currentCapacity){
+            grow();
+        }
+
+        current.put(key);
+    }
+
+    public long approximateElementCount() {
+        return filters.stream().mapToLong(BloomFilter::approximateElementCount).sum();
+    }
+
+    private synchronized void grow() {
+
+        if(current.approximateElementCount() < currentCapacity){
+            return; // Another thread grew it first.
+        }
+
+        currentCapacity *= GROWTH;
+        currentProbability *= TIGHTENING;
+        BloomFilter<CharSequence> filter = create(currentCapacity, currentProbability);
+        filters.add(filter); // Readable before it takes writes, so no key is ever put where mightContain does not look.
+        current = filter;
+    }
+
+    private static BloomFilter<CharSequence> create(long expectedInsertions, double falsePositiveProbability) {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falsePositiveProbability);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.securitymodule.utility;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//  One token bucket per key, each packed into a single AtomicLong: the tokens in the high bits and the last refill time in the low bits.
+//  Taking a token is one compare-and-set, no locks. A bucket that has refilled completely is the same as no bucket, so idle keys expire.
+//  Only refilled buckets are ever dropped: a flood of new keys must not evict the drained bucket of the client it is meant to stop.
+//  At capacity the new keys share one overflow bucket until some of the others have refilled.
+public final class TokenBuckets {
+
+    private static final int TIME_BITS = 42; // Milliseconds since "epoch", enough for more than a century.
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final long MILLI_TOKENS_PER_TOKEN = 1000; // Tokens are counted in thousandths, so slow refill rates still add up.
+    private static final long MAXIMUM_MILLI_TOKENS = (1L << (Long.SIZE - TIME_BITS - 1)) - 1; // Keeps the packed value positive.
+
+    private final long capacity; // In milli-tokens.
+    private final long refillInterval; // Milliseconds per token.
+    private final long epoch = System.currentTimeMillis();
+    private final int maximumKeys;
+    private final Cache<String, AtomicLong> buckets;
+    private final AtomicLong overflow;
+
+    public TokenBuckets(int capacity, long refillInterval, int maximumKeys) {
+
+        if(capacity < 1 || capacity * MILLI_TOKENS_PER_TOKEN > MAXIMUM_MILLI_TOKENS || refillInterval < 1){
+            throw new IllegalArgumentException("Token bucket capacity must be between 1 and " + MAXIMUM_MILLI_TOKENS / MILLI_TOKENS_PER_TOKEN
+                                               + " and the refill interval positive.");
+        }
+
+        this.capacity = capacity * MILLI_TOKENS_PER_TOKEN;
+        this.refillInterval = refillInterval;
+        this.maximumKeys = maximumKeys;
+        this.buckets = CacheBuilder
+                       .newBuilder()
+                       .expireAfterAccess(refillInterval * capacity, TimeUnit.MILLISECONDS) // Full again by then.
+                       .build();
+        this.overflow = new AtomicLong(full(System.currentTimeMillis()));
+    }
+
+    //    Takes one token. Returns 0 when it was granted, otherwise how many milliseconds until the next token.
+    public long tryConsume(String key) {
+
+        long now = System.currentTimeMillis();
+        AtomicLong bucket = bucket(key, now);
+
+        while(true){
+            long state = bucket.get();
+            long tokens = available(state, now);
+
+            if(tokens < MILLI_TOKENS_PER_TOKEN){
+                return Math.max(1, ((MILLI_TOKENS_PER_TOKEN - tokens) * refillInterval + MILLI_TOKENS_PER_TOKEN - 1) / MILLI_TOKENS_PER_TOKEN);
+            }
+
+            if(bucket.compareAndSet(state, pack(tokens - MILLI_TOKENS_PER_TOKEN, now))){
+                return 0;
+            }
+        }
+    }
+
+    //    Drops the buckets nobody used for a full refill, they carry no information any more.
+    //    Expiry also happens as buckets are used, this only catches up when the limiter is quiet.
+    public void cleanUp() {
+        buckets.cleanUp();
+    }
+
+    public long size() {
+        return buckets.size();
+    }
+
+    private AtomicLong bucket(String key, long now) {
+
+        AtomicLong bucket = buckets.getIfPresent(key);
+
+        if(bucket != null){
+            return bucket;
+        }
+
+        if(buckets.size() >= maximumKeys){
+            buckets.cleanUp(); // Refilled buckets may still be counted.
+
+            if(buckets.size() >= maximumKeys){
+                return overflow;
+            }
+        }
+
+        return buckets.asMap().computeIfAbsent(key, absent -> new AtomicLong(full(now))); // Concurrent newcomers can pass the bound by a few.
+    }
+
+    private long available(long state, long now) {
+
+        long tokens = state >>> TIME_BITS;
+        long elapsed = Math.max(0, (now - epoch) - (state & TIME_MASK)); // The clock can step back, never refill negative.
+        long refilled = elapsed >= refillInterval * (capacity / MILLI_TOKENS_PER_TOKEN) ? capacity : elapsed * MILLI_TOKENS_PER_TOKEN / refillInterval;
+
+        return Math.min(capacity, tokens + refilled);
+    }
+
+    private long full(long now) {
+        return pack(capacity, now);
+    }
+
+    private long pack(long tokens, long now) {
+        return tokens << TIME_BITS | ((now - epoch) & TIME_MASK);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.securitymodule.utility;
+
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.domain.UserSnapshot;
+import com.example.securitymodule.repository.UserRepository;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Component
+public class UserCache { // Near-cache in front of UserRepository for lookups by id, username and email.
+
+    //    Users by id hold the data. Usernames and emails only point to an id, so a change to a user is evicted in one place.
+    private final LoadingCache<Long, Optional<UserSnapshot>> usersById;
+    private final LoadingCache<String, Optional<Long>> idsByUsername;
+    private final LoadingCache<String, Optional<Long>> idsByEmail;
+
+    public UserCache(UserRepository userRepository,
+                     MeterRegistry meterRegistry,
+                     @Value("${security.user-cache.ttl:60000}") long ttl,
+                     @Value("${security.user-cache.maximum-size:10000}") long maximumSize) {
+
+        this.usersById = newCache(ttl, maximumSize, CacheLoader.from((Long id) -> userRepository.findById(id).map(UserSnapshot::of)));
+        this.idsByUsername = newCache(ttl, maximumSize, CacheLoader.from((String username) -> load(userRepository.findUserByUsername(username))));
+        this.idsByEmail = newCache(ttl, maximumSize, CacheLoader.from((String email) -> load(userRepository.findUserByEmail(email))));
+
+        GuavaCacheMetrics.monitor(meterRegistry, usersById, "users.by-id"); // Hit rate, loads, evictions and size.
+        GuavaCacheMetrics.monitor(meterRegistry, idsByUsername, "users.by-username");
+        GuavaCacheMetrics.monitor(meterRegistry, idsByEmail, "users.by-email");
+    }
+
+    //    A new detached User on every call, or null. Concurrent misses for the same key wait for a single load.
+    public User findByUsername(String username) {
+        return username == null ? null : find(idsByUsername, username, UserSnapshot::getUsername);
+    }
+
+    public User findByEmail(String email) {
+        return email == null ? null : find(idsByEmail, email, UserSnapshot::getEmail);
+    }
+
+    public User findById(Long id) {
+        return id == null ? null : usersById.getUnchecked(id).map(UserSnapshot::toUser).orElse(null);
+    }
+
+    //    Call after every write to a user: its id, and both its username and email (also when they were "not found" before).
+    public void evict(User user) {
+        evict(user.getId(), user.getUsername(), user.getEmail());
+    }
+
+    //    Evicts now, and again once the transaction commits, so a read in between cannot cache the old row for a whole TTL.
+    public void evict(Long id, String username, String email) {
+
+        invalidate(id, username, email);
+
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(id, username, email);
+                }
+            });
+        }
+    }
+
+    private User find(LoadingCache<String, Optional<Long>> index, String key, Function<UserSnapshot, String> keyOf) {
+
+        Optional<Long> id = index.getUnchecked(key);
+        if(id.isEmpty()){
+            return null;
+        }
+
+        Optional<UserSnapshot> snapshot = usersById.getUnchecked(id.get());
+        if(snapshot.isEmpty() || !Objects.equals(keyOf.apply(snapshot.get()), key)){ // Renamed or deleted since the index was loaded.
+            index.invalidate(key);
+            snapshot = index.getUnchecked(key).flatMap(usersById::getUnchecked);
+        }
+
+        return snapshot.filter(found -> Objects.equals(keyOf.apply(found), key)).map(UserSnapshot::toUser).orElse(null);
+    }
+
+    private Optional<Long> load(User user) {
+
+        if(user == null){
+            return Optional.empty();
+        }
+
+        usersById.put(user.getId(), Optional.of(UserSnapshot.of(user))); // Already loaded, the id lookup that follows is a hit.
+        return Optional.of(user.getId());
+    }
+
+    private void invalidate(Long id, String username, String email) {
+
+        if(id != null){
+            usersById.invalidate(id);
+        }
+        if(username != null){
+            idsByUsername.invalidate(username);
+        }
+        if(email != null){
+            idsByEmail.invalidate(email);
+        }
+    }
+
+    private static <K, V> LoadingCache<K, V> newCache(long ttl, long maximumSize, CacheLoader<K, V> loader) {
+
+        return CacheBuilder
+               .newBuilder()
+               .maximumSize(maximumSize)
+               .expireAfterWrite(ttl, TimeUnit.MILLISECONDS) // Bounds how long a change made by another node can go unseen.
+               .recordStats()
+               .build(loader);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.securitymodule.utility;
+
+import com.example.securitymodule.domain.VerifiedToken;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.securitymodule.constant.SecurityConstant.ACCESS_EXPIRATION_TIME;
+
+@Component
+public class VerifiedTokenCache { // Remembers tokens that already passed the signature check, so hot tokens skip the crypto.
+
+    private static final int ENTRY_OVERHEAD = 64; // Rough size of the key, the entry and the VerifiedToken itself.
+
+    private final boolean enabled;
+    private final Cache<HashCode, VerifiedToken> cache;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.enabled:true}") boolean enabled,
+                              @Value("${jwt.cache.maximum-weight:10000000}") long maximumWeight,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = CacheBuilder
+                    .newBuilder()
+                    .maximumWeight(maximumWeight)
+                    .weigher((HashCode key, VerifiedToken value) -> weigh(value))
+                    .expireAfterWrite(ACCESS_EXPIRATION_TIME, TimeUnit.MILLISECONDS) // No access token lives longer than this.
+                    .recordStats()
+                    .build();
+
+        GuavaCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens"); // Hits, misses, evictions and size.
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //    The key is a digest of the token, so we never keep the bearer tokens themselves in memory.
+    public HashCode keyOf(String token) {
+        return Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+    }
+
+    public VerifiedToken get(HashCode key) {
+
+        if(!enabled){
+            return null;
+        }
+
+        VerifiedToken verifiedToken = cache.getIfPresent(key);
+
+        if(verifiedToken != null && !verifiedToken.getExpiresAt().after(new Date())){ // Each entry dies with its token's own "exp".
+            cache.invalidate(key);
+            return null;
+        }
+
+        return verifiedToken;
+    }
+
+    public void put(HashCode key, VerifiedToken verifiedToken) {
+
+        if(enabled && verifiedToken.getSubject() != null && verifiedToken.getExpiresAt() != null){
+            cache.put(key, verifiedToken);
+        }
+    }
+
+    private static int weigh(VerifiedToken verifiedToken) {
+
+        int weight = ENTRY_OVERHEAD + verifiedToken.getSubject().length();
+
+        for(GrantedAuthority grantedAuthority : verifiedToken.getAuthorities()){
+            weight += grantedAuthority.getAuthority().length();
+        }
+
+        return weight;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.securitymodule.filter;
+
+import com.example.securitymodule.service.TokenRevocationService;
+import com.example.securitymodule.utility.JWTTokenProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.example.securitymodule.constant.Authority.SUPER_ADMIN_AUTHORITIES;
+import static com.example.securitymodule.constant.SecurityConstant.TOKEN_PREFIX;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:web;DB_CLOSE_ON_EXIT=FALSE")
+@AutoConfigureMockMvc
+class JwtAuthorizationFilterTests {
+
+	private static final String PROTECTED_URL = "/user/security/heavy-hitters"; // Needs "user:delete".
+	private static final String AUTHENTICATED_URL = "/user/page"; // Needs any authenticated user.
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private JWTTokenProvider jwtTokenProvider;
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+
+	@Test
+	void authoritiesOfTheTokenAreGranted() throws Exception {
+
+		String token = jwtTokenProvider.generateJwtAccessToken("filter-admin", SUPER_ADMIN_AUTHORITIES);
+
+		mockMvc.perform(get(PROTECTED_URL).header(AUTHORIZATION, TOKEN_PREFIX + token))
+			   .andExpect(status().isOk());
+	}
+
+	@Test
+	void revokedTokenIsForbidden() throws Exception {
+
+		String token = jwtTokenProvider.generateJwtAccessToken("filter-revoked", SUPER_ADMIN_AUTHORITIES);
+		mockMvc.perform(get(PROTECTED_URL).header(AUTHORIZATION, TOKEN_PREFIX + token))
+			   .andExpect(status().isOk()); // Also puts it in the verified-token cache, which must not bypass the check.
+
+		tokenRevocationService.revokeToken(jwtTokenProvider.verifyToken(token).getTokenId(), null);
+
+		mockMvc.perform(get(PROTECTED_URL).header(AUTHORIZATION, TOKEN_PREFIX + token))
+			   .andExpect(status().isForbidden());
+	}
+
+	@Test
+	void refreshTokenDoesNotAuthenticate() throws Exception {
+
+		String token = jwtTokenProvider.generateJwtRefreshToken("filter-refresh", 0, "family", "token");
+
+		mockMvc.perform(get(AUTHENTICATED_URL).header(AUTHORIZATION, TOKEN_PREFIX + token))
+			   .andExpect(status().isForbidden());
+		mockMvc.perform(get(AUTHENTICATED_URL).header(AUTHORIZATION, TOKEN_PREFIX +
+					   jwtTokenProvider.generateJwtAccessToken("filter-refresh", SUPER_ADMIN_AUTHORITIES)))
+			   .andExpect(status().isOk());
+	}
+
+	@Test
+	void requestWithoutTokenIsForbidden() throws Exception {
+
+		mockMvc.perform(get(PROTECTED_URL))
+			   .andExpect(status().isForbidden());
+	}
+}
@@ -0,0 +1,78 @@
+package com.example.securitymodule.resource;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.securitymodule.utility.JWTTokenProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.util.Base64;
+
+import static com.example.securitymodule.constant.Authority.USER_AUTHORITIES;
+import static com.example.securitymodule.constant.SecurityConstant.JWKS_URL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//  A resource server only has the JWK Set: every token we sign must verify with it, without asking us.
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:es256;DB_CLOSE_ON_EXIT=FALSE",
+							  "jwt.algorithm=ES256",
+							  "jwt.key-ring.generate-keys=true"})
+@AutoConfigureMockMvc
+class JwksResourceTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private JWTTokenProvider jwtTokenProvider;
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void accessTokenVerifiesWithThePublishedKey() throws Exception {
+
+		String token = jwtTokenProvider.generateJwtAccessToken("jwks-user", USER_AUTHORITIES);
+		String body = mockMvc.perform(get(JWKS_URL)) // Public, no token needed.
+							 .andExpect(status().isOk())
+							 .andReturn().getResponse().getContentAsString();
+
+		String keyId = JWT.decode(token).getKeyId();
+		JsonNode jwk = null;
+		for(JsonNode key : objectMapper.readTree(body).get("keys")){
+			if(key.get("kid").asText().equals(keyId)){
+				jwk = key;
+			}
+		}
+
+		assertEquals("EC", jwk.get("kty").asText());
+		DecodedJWT decodedJWT = JWT.require(Algorithm.ECDSA256(toPublicKey(jwk), null)).build().verify(token);
+		assertEquals("jwks-user", decodedJWT.getSubject());
+	}
+
+	private static ECPublicKey toPublicKey(JsonNode jwk) throws Exception {
+
+		AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+		parameters.init(new ECGenParameterSpec("secp256r1"));
+		ECPoint point = new ECPoint(decode(jwk.get("x").asText()), decode(jwk.get("y").asText()));
+
+		return (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+	}
+
+	private static BigInteger decode(String base64Url) {
+		return new BigInteger(1, Base64.getUrlDecoder().decode(base64Url));
+	}
+}
@@ -0,0 +1,129 @@
+package com.example.securitymodule.resource;
+
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.repository.UserRepository;
+import com.example.securitymodule.service.LoginAttemptService;
+import com.example.securitymodule.service.PasswordHashingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static com.example.securitymodule.enumeration.Role.ROLE_USER;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:web;DB_CLOSE_ON_EXIT=FALSE")
+@AutoConfigureMockMvc
+class LoginTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private PasswordHashingService passwordHashingService;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private BCryptPasswordEncoder bCryptPasswordEncoder;
+	@Autowired
+	private LoginAttemptService loginAttemptService;
+	@Value("${security.password-hashing.queue-size:64}")
+	private int queueSize;
+
+	@Test
+	void weakerHashIsUpgradedOnLogin() throws Exception {
+
+		String username = "rehash-" + UUID.randomUUID().toString().substring(0, 8);
+		String weakHash = new BCryptPasswordEncoder(4).encode("secret");
+		saveUser(username, weakHash);
+
+		login(username, "secret").andExpect(status().isOk());
+
+		String storedHash = userRepository.findUserByUsername(username).getPassword();
+		assertNotEquals(weakHash, storedHash);
+		assertTrue(bCryptPasswordEncoder.matches("secret", storedHash));
+		assertTrue(storedHash.startsWith("$2a$1")); // Calibrated, so at least the minimum strength of 10.
+	}
+
+	@Test
+	void wrongPasswordAndUnknownUserFailAlikeAndAreCounted() throws Exception {
+
+		String username = "wrong-" + UUID.randomUUID().toString().substring(0, 8);
+		saveUser(username, bCryptPasswordEncoder.encode("secret"));
+
+		for(int attempt = 0; attempt < 5; attempt++){
+			login(username, "guess").andExpect(status().isBadRequest());
+			login(username + "-unknown", "guess").andExpect(status().isBadRequest());
+		}
+
+		assertTrue(loginAttemptService.hasExceededMaxAttempts(username));
+		assertTrue(loginAttemptService.hasExceededMaxAttempts(username + "-unknown"));
+		loginAttemptService.evictUserFromLoginAttemptCache(username);
+		loginAttemptService.evictUserFromLoginAttemptCache(username + "-unknown");
+	}
+
+	@Test
+	void loginIsRejectedAtOnceWhenHashingIsSaturated() throws Exception {
+
+		CountDownLatch release = new CountDownLatch(1);
+
+		try {
+			for(int task = 0; task < Runtime.getRuntime().availableProcessors() + queueSize; task++){
+				passwordHashingService.submit(() -> {
+					try {
+						release.await();
+					} catch (InterruptedException exception){
+						Thread.currentThread().interrupt();
+					}
+					return null;
+				});
+			}
+
+			mockMvc.perform(post("/user/login").contentType(APPLICATION_JSON).content("{\"username\":\"busy\",\"password\":\"secret\"}"))
+				   .andExpect(status().isServiceUnavailable())
+				   .andExpect(header().string(RETRY_AFTER, "1"));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	private ResultActions login(String username, String password) throws Exception {
+
+		MvcResult result = mockMvc.perform(post("/user/login").contentType(APPLICATION_JSON)
+															.content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+								  .andExpect(request().asyncStarted())
+								  .andReturn();
+
+		return mockMvc.perform(asyncDispatch(result));
+	}
+
+	private void saveUser(String username, String encodedPassword) {
+		userRepository.save(User.builder()
+								.userId(UUID.randomUUID().toString())
+								.username(username)
+								.email(username + "@example.com")
+								.password(encodedPassword)
+								.joinDate(new Date())
+								.role(ROLE_USER.name())
+								.authorities(ROLE_USER.getAuthorities())
+								.isActive(true)
+								.isNotLocked(true)
+								.build());
+	}
+}
@@ -0,0 +1,65 @@
+package com.example.securitymodule.resource;
+
+import com.example.securitymodule.utility.JWTTokenProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static com.example.securitymodule.constant.Authority.GATEWAY_AUTHORITIES;
+import static com.example.securitymodule.constant.Authority.SUPER_ADMIN_AUTHORITIES;
+import static com.example.securitymodule.constant.SecurityConstant.INTROSPECTION_URL;
+import static com.example.securitymodule.constant.SecurityConstant.TOKEN_PREFIX;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:web;DB_CLOSE_ON_EXIT=FALSE")
+@AutoConfigureMockMvc
+class TokenIntrospectionTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private JWTTokenProvider jwtTokenProvider;
+
+	@Test
+	void gatewayIntrospectsTokens() throws Exception {
+
+		String gatewayToken = jwtTokenProvider.generateJwtAccessToken("gateway", GATEWAY_AUTHORITIES);
+		String userToken = jwtTokenProvider.generateJwtAccessToken("introspected", SUPER_ADMIN_AUTHORITIES);
+
+		MvcResult result = mockMvc.perform(post(INTROSPECTION_URL)
+												   .header(AUTHORIZATION, TOKEN_PREFIX + gatewayToken)
+												   .contentType(APPLICATION_JSON)
+												   .content("[\"" + userToken + "\", \"not-a-token\"]"))
+								  .andExpect(request().asyncStarted())
+								  .andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+			   .andExpect(status().isOk())
+			   .andExpect(content().string(containsString("{\"index\":0,\"active\":true,\"sub\":\"introspected\"")))
+			   .andExpect(content().string(containsString("{\"index\":1,\"active\":false}")));
+	}
+
+	@Test
+	void introspectionNeedsTheAuthority() throws Exception {
+
+		String adminToken = jwtTokenProvider.generateJwtAccessToken("not-a-gateway", SUPER_ADMIN_AUTHORITIES);
+
+		mockMvc.perform(post(INTROSPECTION_URL).contentType(APPLICATION_JSON).content("[]"))
+			   .andExpect(status().isForbidden());
+		mockMvc.perform(post(INTROSPECTION_URL)
+								.header(AUTHORIZATION, TOKEN_PREFIX + adminToken)
+								.contentType(APPLICATION_JSON)
+								.content("[]"))
+			   .andExpect(status().isUnauthorized()); // What JwtAccessDeniedHandler answers to a missing authority.
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.securitymodule.resource;
+
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.domain.UserPrincipal;
+import com.example.securitymodule.repository.UserRepository;
+import com.example.securitymodule.service.AuthorizationVersionService;
+import com.example.securitymodule.service.LoginAttemptService;
+import com.example.securitymodule.service.RefreshTokenFamilyService;
+import com.example.securitymodule.utility.JWTTokenProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static com.example.securitymodule.constant.Authority.USER_AUTHORITIES;
+import static com.example.securitymodule.constant.SecurityConstant.JWT_REFRESH_TOKEN_HEADER;
+import static com.example.securitymodule.constant.SecurityConstant.TOKEN_PREFIX;
+import static com.example.securitymodule.enumeration.Role.ROLE_USER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:web;DB_CLOSE_ON_EXIT=FALSE")
+@AutoConfigureMockMvc
+class TokenRefreshTests {
+
+	private static final String REFRESH_URL = "/user/token/refresh";
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private UserDetailsService userDetailsService;
+	@Autowired
+	private LoginAttemptService loginAttemptService;
+	@Autowired
+	private AuthorizationVersionService authorizationVersionService;
+	@Autowired
+	private RefreshTokenFamilyService refreshTokenFamilyService;
+	@Autowired
+	private JWTTokenProvider jwtTokenProvider;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void activeUserRefreshesFromTheDatabaseThenFromTheSnapshot() throws Exception {
+
+		User user = saveUser();
+
+		mockMvc.perform(get(REFRESH_URL).header(AUTHORIZATION, TOKEN_PREFIX + refreshToken(user)))
+			   .andExpect(status().isOk())
+			   .andExpect(jsonPath("$['" + JWT_REFRESH_TOKEN_HEADER + "']").exists());
+		mockMvc.perform(get(REFRESH_URL).header(AUTHORIZATION, TOKEN_PREFIX + refreshToken(user)))
+			   .andExpect(status().isOk());
+	}
+
+	@Test
+	void refreshRotatesTheFamilyInMemoryOnly() throws Exception {
+
+		User user = saveUser();
+		mockMvc.perform(get(REFRESH_URL).header(AUTHORIZATION, TOKEN_PREFIX + refreshToken(user)))
+			   .andExpect(status().isOk());
+
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_token_family", Long.class));
+	}
+
+	@Test
+	void userLockedAfterLoginCannotRefresh() throws Exception {
+
+		User user = saveUser();
+		String token = refreshToken(user);
+
+		for(int attempt = 0; attempt < 5; attempt++){
+			loginAttemptService.addUserToLoginAttemptCache(user.getUsername());
+		}
+		userDetailsService.loadUserByUsername(user.getUsername()); // The next login attempt locks the account.
+
+		mockMvc.perform(get(REFRESH_URL).header(AUTHORIZATION, TOKEN_PREFIX + token))
+			   .andExpect(status().isForbidden());
+	}
+
+	@Test
+	void deactivatedUserCannotRefreshFromTheSnapshot() throws Exception {
+
+		User user = saveUser();
+		String token = refreshToken(user);
+
+		//    What another request of this node recorded after the user was deactivated, at the version the token carries.
+		user.setActive(false);
+		authorizationVersionService.record(user);
+
+		mockMvc.perform(get(REFRESH_URL).header(AUTHORIZATION, TOKEN_PREFIX + token))
+			   .andExpect(status().isForbidden());
+	}
+
+	private User saveUser() {
+
+		String username = "refresh-" + UUID.randomUUID().toString().substring(0, 8);
+
+		return userRepository.save(User.builder()
+										.userId(UUID.randomUUID().toString())
+										.username(username)
+										.email(username + "@example.com")
+										.password("not-used")
+										.joinDate(new Date())
+										.role(ROLE_USER.name())
+										.authorities(USER_AUTHORITIES)
+										.isActive(true)
+										.isNotLocked(true)
+										.build());
+	}
+
+	private String refreshToken(User user) {
+
+		String familyId = UUID.randomUUID().toString();
+		String tokenId = UUID.randomUUID().toString();
+		refreshTokenFamilyService.startFamily(familyId, tokenId, user.getUsername());
+
+		return jwtTokenProvider.generateJwtRefreshToken(new UserPrincipal(user), familyId, tokenId);
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.enumeration.Role;
+import com.example.securitymodule.repository.UserRepository;
+import com.example.securitymodule.utility.AuthorityBitmask;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class AuthorityMaskMigrationTests {
+
+	@Autowired
+	private AuthorityMaskMigration authorityMaskMigration;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void rowsWithoutAMaskGetTheAuthoritiesOfTheirRole() {
+
+		User user = saveUser(Role.ROLE_MANAGER, Role.ROLE_MANAGER.getAuthorities());
+		jdbcTemplate.update("UPDATE user SET authority_mask = 0 WHERE id = ?", user.getId()); // As written before the column existed.
+
+		authorityMaskMigration.migrate();
+
+		User migrated = userRepository.findById(user.getId()).orElseThrow();
+		assertArrayEquals(Role.ROLE_MANAGER.getAuthorities(), migrated.getAuthorities());
+		assertEquals(user.getVersion() + 1, migrated.getVersion()); // A copy read before the migration cannot undo it.
+	}
+
+	@Test
+	void masksAlreadySetAreLeftAlone() {
+
+		User user = saveUser(Role.ROLE_USER, Role.ROLE_MANAGER.getAuthorities()); // Authorities that differ from the role's.
+
+		authorityMaskMigration.migrate();
+
+		User unchanged = userRepository.findById(user.getId()).orElseThrow();
+		assertArrayEquals(Role.ROLE_MANAGER.getAuthorities(), unchanged.getAuthorities());
+		assertEquals(user.getVersion(), unchanged.getVersion());
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user WHERE authority_mask = 0", Integer.class));
+	}
+
+	@Test
+	void storedMasksReadBackAsAuthorities() {
+
+		User user = saveUser(Role.ROLE_SUPER_ADMIN, Role.ROLE_SUPER_ADMIN.getAuthorities());
+
+		Integer mask = jdbcTemplate.queryForObject("SELECT authority_mask FROM user WHERE id = ?", Integer.class, user.getId());
+
+		assertEquals(AuthorityBitmask.toKnownMask(Role.ROLE_SUPER_ADMIN.getAuthorities()), mask);
+		assertArrayEquals(Role.ROLE_SUPER_ADMIN.getAuthorities(), userRepository.findById(user.getId()).orElseThrow().getAuthorities());
+	}
+
+	private User saveUser(Role role, String[] authorities) {
+		String username = "user-" + UUID.randomUUID().toString().substring(0, 8);
+		return userRepository.save(User.builder()
+		                               .userId(username)
+		                               .firstName("Mask")
+		                               .lastName("Test")
+		                               .username(username)
+		                               .email(username + "@example.com")
+		                               .password("password")
+		                               .joinDate(new Date())
+		                               .role(role.name())
+		                               .authorities(authorities)
+		                               .isActive(true)
+		                               .isNotLocked(true)
+		                               .build());
+	}
+}
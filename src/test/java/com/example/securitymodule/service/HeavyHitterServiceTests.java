@@ -0,0 +1,54 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.HeavyHitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.example.securitymodule.service.HeavyHitterService.ADDRESSES;
+import static com.example.securitymodule.service.HeavyHitterService.USERNAMES;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHitterServiceTests {
+
+	@Test
+	void offendersAreShownWithTheirSuccesses() {
+
+		HeavyHitterService service = new HeavyHitterService(4, 1024, 5, 0);
+
+		for(int attempt = 0; attempt < 6; attempt++){
+			service.recordFailure("203.0.113.7", "admin");
+		}
+		service.recordSuccess("203.0.113.7", "alice"); // An office NAT: failures, but real users too.
+
+		Map<String, List<HeavyHitter>> offenders = service.getTopOffenders();
+		HeavyHitter address = offenders.get(ADDRESSES).get(0);
+		HeavyHitter username = offenders.get(USERNAMES).get(0);
+
+		assertEquals("203.0.113.7", address.getKey());
+		assertEquals(6, address.getFailures());
+		assertEquals(1, address.getSuccesses());
+		assertEquals("admin", username.getKey());
+		assertEquals(0, username.getSuccesses());
+		assertFalse(service.isBlocked("203.0.113.7")); // Blocking is off by default.
+	}
+
+	@Test
+	void addressIsBlockedPastTheThresholdUntilItDecays() {
+
+		HeavyHitterService service = new HeavyHitterService(4, 1024, 5, 4);
+
+		for(int attempt = 0; attempt < 3; attempt++){
+			service.recordFailure("198.51.100.1", null);
+		}
+		assertFalse(service.isBlocked("198.51.100.1"));
+
+		service.recordFailure("198.51.100.1", null);
+		assertTrue(service.isBlocked("198.51.100.1"));
+		assertFalse(service.isBlocked("198.51.100.2"));
+
+		service.decay();
+		assertFalse(service.isBlocked("198.51.100.1"));
+	}
+}
@@ -0,0 +1,104 @@
+package com.example.securitymodule.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryLoginAttemptStoreTests {
+
+	private static final long WINDOW = 200;
+
+	@Test
+	void onlyFailuresWithinTheWindowCount() throws InterruptedException {
+
+		InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore(3, WINDOW, 100, new SimpleMeterRegistry());
+
+		store.recordFailure("alice");
+		store.recordFailure("alice");
+		assertEquals(2, store.countRecentFailures("alice"));
+
+		Thread.sleep(WINDOW + 50);
+		store.recordFailure("alice");
+
+		assertEquals(1, store.countRecentFailures("alice")); // The window slides, it is not reset by the newest failure.
+	}
+
+	@Test
+	void countStopsAtTheMaximumAndResets() {
+
+		InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore(3, WINDOW, 100, new SimpleMeterRegistry());
+
+		for(int attempt = 0; attempt < 10; attempt++){
+			store.recordFailure("bob");
+		}
+		assertEquals(3, store.countRecentFailures("bob")); // Older failures cannot change the outcome, so they are not kept.
+
+		store.reset("bob");
+		assertEquals(0, store.countRecentFailures("bob"));
+	}
+
+	@Test
+	void usersNotHeardFromTheLongestGoFirstAtCapacity() {
+
+		InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore(3, 60_000, 2, new SimpleMeterRegistry());
+
+		store.recordFailure("first");
+		store.recordFailure("second");
+		store.recordFailure("third");
+
+		assertEquals(0, store.countRecentFailures("first"));
+		assertEquals(1, store.countRecentFailures("second"));
+		assertEquals(1, store.countRecentFailures("third"));
+	}
+
+	@Test
+	void expiryLeftByAResetDoesNotEvictTheUser() {
+
+		InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore(3, 60_000, 2, new SimpleMeterRegistry());
+
+		store.recordFailure("carol");
+		store.reset("carol");
+		store.recordFailure("second");
+		store.recordFailure("carol"); // Seen after "second" now, but her first expiry is still at the head of the queue.
+		store.recordFailure("third");
+
+		assertEquals(1, store.countRecentFailures("carol"));
+		assertEquals(0, store.countRecentFailures("second"));
+		assertEquals(1, store.countRecentFailures("third"));
+	}
+
+	@Test
+	void lockedUserSurvivesAFloodOfNewUsernames() {
+
+		InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore(3, 60_000, 10, new SimpleMeterRegistry());
+
+		for(int attempt = 0; attempt < 3; attempt++){
+			store.recordFailure("victim");
+		}
+		store.recordFailure("almost");
+		for(int user = 0; user < 1000; user++){
+			store.recordFailure("spray-" + user);
+		}
+
+		assertEquals(3, store.countRecentFailures("victim"));
+		assertEquals(0, store.countRecentFailures("almost")); // Not locked, so it goes like any other.
+		assertEquals(0, store.countRecentFailures("spray-0"));
+		assertEquals(1, store.countRecentFailures("spray-999"));
+	}
+
+	@Test
+	void expiredUsersAreSwept() throws InterruptedException {
+
+		InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore(3, WINDOW, 2, new SimpleMeterRegistry());
+
+		store.recordFailure("old");
+		Thread.sleep(WINDOW + 50);
+		store.removeExpiredAttempts();
+		store.recordFailure("new");
+		store.recordFailure("newer");
+
+		assertEquals(1, store.countRecentFailures("new")); // "old" had expired, so nobody recent was evicted for the capacity.
+		assertEquals(1, store.countRecentFailures("newer"));
+	}
+}
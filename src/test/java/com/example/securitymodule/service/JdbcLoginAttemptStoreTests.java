@@ -0,0 +1,55 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.SecurityModuleApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//  Two nodes, one database: failed logins on one node must lock the user out on the other.
+class JdbcLoginAttemptStoreTests {
+
+	private static final String USERNAME = "mallory";
+
+	@Test
+	void failedLoginsAreSharedBetweenNodes() {
+
+		try(ConfigurableApplicationContext firstNode = startNode();
+			ConfigurableApplicationContext secondNode = startNode()){
+
+			LoginAttemptService firstAttempts = firstNode.getBean(LoginAttemptService.class);
+			LoginAttemptService secondAttempts = secondNode.getBean(LoginAttemptService.class);
+
+			for(int attempt = 0; attempt < 3; attempt++){
+				firstAttempts.addUserToLoginAttemptCache(USERNAME);
+			}
+			for(int attempt = 0; attempt < 2; attempt++){
+				secondAttempts.addUserToLoginAttemptCache(USERNAME);
+			}
+
+			assertFalse(firstAttempts.hasExceededMaxAttempts(USERNAME)); // 3 of 5 known here until the second node flushes.
+
+			firstNode.getBean(JdbcLoginAttemptStore.class).flush();
+			secondNode.getBean(JdbcLoginAttemptStore.class).flush();
+
+			assertTrue(firstAttempts.hasExceededMaxAttempts(USERNAME));
+			assertTrue(secondAttempts.hasExceededMaxAttempts(USERNAME));
+
+			secondAttempts.evictUserFromLoginAttemptCache(USERNAME);
+
+			assertFalse(secondAttempts.hasExceededMaxAttempts(USERNAME));
+		}
+	}
+
+	private static ConfigurableApplicationContext startNode() {
+		return new SpringApplicationBuilder(SecurityModuleApplication.class).run(
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:shared-login-attempts;DB_CLOSE_DELAY=-1",
+				"--spring.jpa.hibernate.ddl-auto=update", // The second node must not drop the tables of the first.
+				"--security.login-attempts.store=jdbc",
+				"--security.login-attempts.jdbc.flush-interval=3600000", // The test flushes by hand.
+				"--security.password-hashing.strength=4");
+	}
+}
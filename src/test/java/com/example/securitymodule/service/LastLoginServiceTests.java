@@ -0,0 +1,75 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.example.securitymodule.enumeration.Role.ROLE_USER;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:last-login;DB_CLOSE_ON_EXIT=FALSE",
+							  "security.last-login.flush-interval=3600000"}) // The test flushes by hand.
+class LastLoginServiceTests {
+
+	@Autowired
+	private LastLoginService lastLoginService;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void loginsAreSeenAtOnceAndWrittenOnFlush() throws InterruptedException {
+
+		User user = saveUser();
+
+		lastLoginService.recordLogin(user);
+		Date firstLogin = user.getLastLoginDate();
+		Thread.sleep(5);
+		lastLoginService.recordLogin(user);
+		Date secondLogin = user.getLastLoginDate();
+
+		assertTrue(secondLogin.after(firstLogin));
+		assertEquals(firstLogin, user.getLastLoginDateDisplay()); // The previous login is the one to display.
+		assertNull(lastLogin(user).get("LAST_LOGIN_DATE")); // Nothing written yet.
+
+		User reloaded = lastLoginService.overlay(userRepository.findById(user.getId()).orElseThrow());
+		assertEquals(secondLogin, reloaded.getLastLoginDate());
+		assertEquals(firstLogin, reloaded.getLastLoginDateDisplay());
+
+		lastLoginService.flush();
+
+		Map<String, Object> written = lastLogin(user);
+		assertEquals(secondLogin.getTime(), ((Timestamp) written.get("LAST_LOGIN_DATE")).getTime());
+		assertEquals(firstLogin.getTime(), ((Timestamp) written.get("LAST_LOGIN_DATE_DISPLAY")).getTime());
+	}
+
+	private Map<String, Object> lastLogin(User user) {
+		return jdbcTemplate.queryForMap("SELECT last_login_date, last_login_date_display FROM user WHERE id = ?", user.getId());
+	}
+
+	private User saveUser() {
+
+		String username = "last-login-" + UUID.randomUUID().toString().substring(0, 8);
+
+		return userRepository.save(User.builder()
+										.userId(UUID.randomUUID().toString())
+										.username(username)
+										.email(username + "@example.com")
+										.password("not-used")
+										.joinDate(new Date())
+										.role(ROLE_USER.name())
+										.authorities(ROLE_USER.getAuthorities())
+										.isActive(true)
+										.isNotLocked(true)
+										.build());
+	}
+}
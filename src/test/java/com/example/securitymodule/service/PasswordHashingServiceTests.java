@@ -0,0 +1,109 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.exception.domain.ServerBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTests {
+
+	private static final int QUEUE_SIZE = 2;
+
+	private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+	private final PasswordHashingService service = new PasswordHashingService(encoder, new SimpleMeterRegistry(), ForkJoinPool.commonPool(), QUEUE_SIZE, 7);
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@AfterEach
+	void releasePool() {
+		release.countDown();
+	}
+
+	@Test
+	void fullPoolRejectsAtOnceWithRetryAfter() throws Exception {
+
+		List<CompletableFuture<Object>> blocking = fillPool();
+
+		ServerBusyException exception = assertThrows(ServerBusyException.class, () -> service.encode("secret"));
+		assertEquals(7, exception.getRetryAfterSeconds());
+
+		release.countDown();
+		blocking.forEach(CompletableFuture::join);
+		assertTrue(encoder.matches("secret", service.encode("secret").join())); // Accepted again once the pool drained.
+	}
+
+	@Test
+	void workChainedToAHashNeverRunsOnAHashingThread() throws Exception {
+
+		CompletableFuture<String> hashed = service.encode("secret");
+		String thread = hashed.thenApply(encoded -> Thread.currentThread().getName()).join();
+
+		assertFalse(thread.startsWith("password-hashing-"));
+	}
+
+	@Test
+	void passwordCheckKeepsOrUpgradesTheHash() throws Exception {
+
+		String current = encoder.encode("secret");
+		PasswordHashingService stronger = new PasswordHashingService(new BCryptPasswordEncoder(5), new SimpleMeterRegistry(),
+				ForkJoinPool.commonPool(), QUEUE_SIZE, 7);
+		String upgraded = stronger.checkPassword("secret", current).join();
+
+		assertEquals(current, service.checkPassword("secret", current).join());
+		assertNull(service.checkPassword("wrong", current).join());
+		assertNull(service.checkPassword("secret", null).join()); // No such user, checked against a dummy hash.
+		assertNull(service.checkPassword(null, current).join());
+		assertTrue(upgraded.startsWith("$2a$05$"));
+		assertTrue(encoder.matches("secret", upgraded));
+	}
+
+	@Test
+	void batchWaitsForTheFullPoolInsteadOfFailing() throws Exception {
+
+		fillPool();
+		CompletableFuture<List<String>> hashes = CompletableFuture.supplyAsync(() -> {
+			try {
+				return service.encodeAll(Arrays.asList("first", "second", "third"), 2);
+			} catch (InterruptedException exception){
+				throw new IllegalStateException(exception);
+			}
+		});
+
+		Thread.sleep(300);
+		assertFalse(hashes.isDone());
+		release.countDown();
+
+		List<String> encoded = hashes.join();
+		assertTrue(encoder.matches("first", encoded.get(0)));
+		assertTrue(encoder.matches("second", encoded.get(1)));
+		assertTrue(encoder.matches("third", encoded.get(2)));
+	}
+
+	//    Every hashing thread busy and every queue slot taken.
+	private List<CompletableFuture<Object>> fillPool() throws ServerBusyException {
+
+		List<CompletableFuture<Object>> blocking = new ArrayList<>();
+
+		for(int task = 0; task < Runtime.getRuntime().availableProcessors() + QUEUE_SIZE; task++){
+			blocking.add(service.submit(() -> {
+				try {
+					release.await();
+				} catch (InterruptedException exception){
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			}));
+		}
+
+		return blocking;
+	}
+}
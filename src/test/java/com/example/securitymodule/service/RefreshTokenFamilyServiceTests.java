@@ -0,0 +1,97 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.SecurityModuleApplication;
+import com.example.securitymodule.domain.VerifiedToken;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//  Two nodes, one database: a refresh token may be used once, whichever node it is presented to.
+class RefreshTokenFamilyServiceTests {
+
+	private static ConfigurableApplicationContext firstNode;
+	private static ConfigurableApplicationContext secondNode;
+	private static RefreshTokenFamilyService first;
+	private static RefreshTokenFamilyService second;
+
+	@BeforeAll
+	static void startNodes() {
+		firstNode = startNode();
+		secondNode = startNode();
+		first = firstNode.getBean(RefreshTokenFamilyService.class);
+		second = secondNode.getBean(RefreshTokenFamilyService.class);
+	}
+
+	@AfterAll
+	static void stopNodes() {
+		secondNode.close();
+		firstNode.close();
+	}
+
+	@Test
+	void familyRotatesOnEveryNode() {
+
+		String familyId = newId();
+		String issued = newId();
+		String rotatedOnSecond = newId();
+		first.startFamily(familyId, issued, "alice");
+
+		assertTrue(second.rotate(familyId, issued, rotatedOnSecond)); // Never seen by the second node, read from the database.
+		assertTrue(first.rotate(familyId, rotatedOnSecond, newId())); // The first node still has the issued token cached.
+	}
+
+	@Test
+	void tokenRotatedOnAnotherNodeCannotBeUsedAgain() {
+
+		String familyId = newId();
+		String issued = newId();
+		first.startFamily(familyId, issued, "bob");
+
+		assertTrue(first.rotate(familyId, issued, newId()));
+		assertFalse(second.rotate(familyId, issued, newId()));
+		assertFalse(first.rotate(familyId, issued, newId())); // The family is gone, for the thief and the owner.
+	}
+
+	@Test
+	void reuseOnANodeWithAStaleCacheRevokesTheFamily() {
+
+		String familyId = newId();
+		String issued = newId();
+		String rotatedOnSecond = newId();
+		String rotatedOnFirst = newId();
+		first.startFamily(familyId, issued, "carol");
+
+		assertTrue(second.rotate(familyId, issued, rotatedOnSecond));
+		assertTrue(first.rotate(familyId, rotatedOnSecond, rotatedOnFirst));
+		assertFalse(second.rotate(familyId, rotatedOnSecond, newId())); // Still current in the second node's cache, not in the database.
+		assertFalse(first.rotate(familyId, rotatedOnFirst, newId()));
+
+		//    Every token of the user is revoked, on the other node too once it synced.
+		TokenRevocationService firstRevocations = firstNode.getBean(TokenRevocationService.class);
+		firstRevocations.syncRevocations();
+		assertTrue(firstRevocations.isRevoked(new VerifiedToken(newId(), "carol", Collections.emptyList(),
+				new Date(System.currentTimeMillis() - 10_000), new Date(System.currentTimeMillis() + 60_000), null, null)));
+	}
+
+	private static String newId() {
+		return UUID.randomUUID().toString();
+	}
+
+	private static ConfigurableApplicationContext startNode() {
+		return new SpringApplicationBuilder(SecurityModuleApplication.class).run(
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:shared-refresh-token-families;DB_CLOSE_DELAY=-1",
+				"--spring.jpa.hibernate.ddl-auto=update", // The second node must not drop the tables of the first.
+				"--security.refresh-token-family.persistent=true",
+				"--security.password-hashing.strength=4");
+	}
+}
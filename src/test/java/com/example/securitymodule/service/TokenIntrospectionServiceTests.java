@@ -0,0 +1,84 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.TokenIntrospection;
+import com.example.securitymodule.domain.VerifiedToken;
+import com.example.securitymodule.utility.AuthorityBitmask;
+import com.example.securitymodule.utility.JWTTokenProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static com.example.securitymodule.constant.Authority.USER_AUTHORITIES;
+import static com.example.securitymodule.constant.SecurityConstant.INTROSPECTION_TIMED_OUT;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenIntrospectionServiceTests {
+
+	private final JWTTokenProvider jwtTokenProvider = mock(JWTTokenProvider.class);
+	private final CountDownLatch stuck = new CountDownLatch(1);
+	private final TokenIntrospectionService service = new TokenIntrospectionService(jwtTokenProvider,
+			new TokenRevocationService(null, false, 1000), new SimpleMeterRegistry(), 100, 100, 200);
+
+	@AfterEach
+	void release() {
+		stuck.countDown();
+	}
+
+	@Test
+	void onlyAccessTokensAreActive() throws InterruptedException {
+
+		when(jwtTokenProvider.isTokenValid(any())).thenReturn(true);
+		when(jwtTokenProvider.verifyToken("access")).thenReturn(token(null));
+		when(jwtTokenProvider.verifyToken("refresh")).thenReturn(token(3L));
+		when(jwtTokenProvider.verifyToken("forged")).thenThrow(new IllegalArgumentException("bad signature"));
+
+		Map<Integer, TokenIntrospection> results = introspect("access", "refresh", "forged");
+
+		assertTrue(results.get(0).isActive());
+		assertEquals("alice", results.get(0).getSub());
+		assertEquals(Arrays.asList(USER_AUTHORITIES), results.get(0).getAuthorities());
+		assertFalse(results.get(1).isActive());
+		assertFalse(results.get(2).isActive());
+		assertNull(results.get(2).getError()); // No reason is given for a token that is not active.
+	}
+
+	@Test
+	void tokensNotCheckedInTimeAreReportedAsErrors() throws InterruptedException {
+
+		when(jwtTokenProvider.isTokenValid(any())).thenReturn(true);
+		when(jwtTokenProvider.verifyToken("access")).thenReturn(token(null));
+		when(jwtTokenProvider.verifyToken("stuck")).thenAnswer(invocation -> {
+			stuck.await();
+			return token(null);
+		});
+
+		Map<Integer, TokenIntrospection> results = introspect("access", "stuck");
+
+		assertEquals(2, results.size());
+		assertTrue(results.get(0).isActive());
+		assertFalse(results.get(1).isActive());
+		assertEquals(INTROSPECTION_TIMED_OUT, results.get(1).getError());
+	}
+
+	private Map<Integer, TokenIntrospection> introspect(String... tokens) throws InterruptedException {
+
+		Map<Integer, TokenIntrospection> results = new ConcurrentHashMap<>();
+		service.introspect(Arrays.asList(tokens), result -> assertNull(results.put(result.getIndex(), result)));
+
+		return results;
+	}
+
+	private static VerifiedToken token(Long authorizationVersion) {
+		return new VerifiedToken("jti", "alice", AuthorityBitmask.toAuthorities(USER_AUTHORITIES), new Date(),
+				new Date(System.currentTimeMillis() + 60_000), authorizationVersion, null);
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.VerifiedToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class TokenRevocationServiceTests {
+
+	private final TokenRevocationService inMemory = new TokenRevocationService(null, false, 1000);
+
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void revokedTokenIsRejectedAndOnlyIt() {
+
+		String revoked = UUID.randomUUID().toString();
+		inMemory.revokeToken(revoked, new Date(System.currentTimeMillis() + 60_000));
+
+		assertTrue(inMemory.isRevoked(token(revoked, "alice", secondsAgo(10))));
+		assertFalse(inMemory.isRevoked(token(UUID.randomUUID().toString(), "alice", secondsAgo(10))));
+	}
+
+	@Test
+	void revokingUserRejectsEveryTokenIssuedBefore() {
+
+		inMemory.revokeUser("bob");
+
+		assertTrue(inMemory.isRevoked(token(UUID.randomUUID().toString(), "bob", secondsAgo(1))));
+		assertTrue(inMemory.isRevoked(token(UUID.randomUUID().toString(), "bob", null))); // No "iat", no way to tell.
+		assertFalse(inMemory.isRevoked(token(UUID.randomUUID().toString(), "carol", secondsAgo(1))));
+	}
+
+	@Test
+	void tokenIssuedInTheSecondOfTheRevocationIsRejected() {
+
+		long issuedAt = System.currentTimeMillis(); // Issued just before the revocation, e.g. by a login racing an admin lock.
+		inMemory.revokeUser("dave");
+
+		assertTrue(inMemory.isRevoked(token(UUID.randomUUID().toString(), "dave", new Date(issuedAt / 1000 * 1000)))); // "iat" drops the millis.
+		assertFalse(inMemory.isRevoked(token(UUID.randomUUID().toString(), "dave", new Date((System.currentTimeMillis() / 1000 + 1) * 1000))));
+	}
+
+	@Test
+	void revocationsReachAnotherNodeAndSurviveRestart() {
+
+		String tokenId = UUID.randomUUID().toString();
+		String username = "revoked-" + UUID.randomUUID();
+		tokenRevocationService.revokeToken(tokenId, new Date(System.currentTimeMillis() + 60_000));
+		tokenRevocationService.revokeUser(username);
+
+		//    A node started after the revocations, or one syncing with the database, only knows them from the tables.
+		TokenRevocationService otherNode = new TokenRevocationService(jdbcTemplate, true, 1000);
+		assertFalse(otherNode.isRevoked(token(tokenId, "anyone", secondsAgo(10))));
+
+		otherNode.syncRevocations();
+
+		assertTrue(otherNode.isRevoked(token(tokenId, "anyone", secondsAgo(10))));
+		assertTrue(otherNode.isRevoked(token(UUID.randomUUID().toString(), username, secondsAgo(10))));
+	}
+
+	private static VerifiedToken token(String tokenId, String subject, Date issuedAt) {
+		return new VerifiedToken(tokenId, subject, Collections.emptyList(), issuedAt,
+				new Date(System.currentTimeMillis() + 60_000), null, null);
+	}
+
+	private static Date secondsAgo(int seconds) {
+		return new Date((System.currentTimeMillis() / 1000 - seconds) * 1000);
+	}
+}
@@ -0,0 +1,81 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.enumeration.Role;
+import com.example.securitymodule.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserAvailabilityServiceTests {
+
+	@Autowired
+	private UserAvailabilityService userAvailabilityService;
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void usersFoundByTheRebuildAreTaken() {
+
+		User user = saveUser();
+
+		userAvailabilityService.rebuild();
+
+		assertFalse(userAvailabilityService.isUsernameAvailable(user.getUsername()));
+		assertFalse(userAvailabilityService.isEmailAvailable(user.getEmail()));
+		assertTrue(userAvailabilityService.isUsernameAvailable(newUsername()));
+		assertTrue(userAvailabilityService.isEmailAvailable(newUsername() + "@example.com"));
+	}
+
+	@Test
+	void addedUsersAreTakenWithoutARebuild() {
+
+		userAvailabilityService.rebuild();
+		User user = saveUser();
+
+		userAvailabilityService.addUser(user.getUsername(), user.getEmail());
+
+		assertFalse(userAvailabilityService.isUsernameAvailable(user.getUsername()));
+		assertFalse(userAvailabilityService.isEmailAvailable(user.getEmail()));
+	}
+
+	@Test
+	void releasedUsernamesAreAnsweredByTheDatabase() {
+
+		userAvailabilityService.rebuild();
+		User user = saveUser();
+		userAvailabilityService.addUser(user.getUsername(), user.getEmail());
+
+		userRepository.delete(user); // Still in the index, which cannot forget it.
+
+		assertTrue(userAvailabilityService.isUsernameAvailable(user.getUsername()));
+		assertTrue(userAvailabilityService.isEmailAvailable(user.getEmail()));
+	}
+
+	private User saveUser() {
+		String username = newUsername();
+		return userRepository.save(User.builder()
+		                               .userId(username)
+		                               .firstName("Taken")
+		                               .lastName("Name")
+		                               .username(username)
+		                               .email(username + "@example.com")
+		                               .password("password")
+		                               .joinDate(new Date())
+		                               .role(Role.ROLE_USER.name())
+		                               .authorities(Role.ROLE_USER.getAuthorities())
+		                               .isActive(true)
+		                               .isNotLocked(true)
+		                               .build());
+	}
+
+	private static String newUsername() {
+		return "user-" + UUID.randomUUID().toString().substring(0, 8);
+	}
+}
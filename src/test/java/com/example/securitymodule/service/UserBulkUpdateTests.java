@@ -0,0 +1,128 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.BulkUpdateResult;
+import com.example.securitymodule.domain.BulkUserUpdate;
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.domain.VerifiedToken;
+import com.example.securitymodule.enumeration.Role;
+import com.example.securitymodule.exception.domain.BulkUpdateNotValidException;
+import com.example.securitymodule.repository.UserRepository;
+import com.example.securitymodule.utility.AuthorityBitmask;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserBulkUpdateTests {
+
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private LoginAttemptService loginAttemptService;
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+
+	@Test
+	void onlyUsersThatChangeAreUpdated() throws Exception {
+
+		User user = saveUser(Role.ROLE_USER, true, true);
+		User other = saveUser(Role.ROLE_USER, true, true);
+		User manager = saveUser(Role.ROLE_MANAGER, true, true);
+		userService.findUserByUsername(user.getUsername()); // Cached with the old role.
+
+		BulkUpdateResult result = userService.updateUsers(new BulkUserUpdate(
+				List.of(user.getId(), other.getId(), manager.getId(), user.getId(), -1L), null, "role_manager", null, null));
+
+		assertEquals(3, result.getMatched());
+		assertEquals(2, result.getUpdated());
+		User updated = userRepository.findById(user.getId()).orElseThrow();
+		assertEquals(Role.ROLE_MANAGER.name(), updated.getRole());
+		assertEquals(AuthorityBitmask.toKnownMask(Role.ROLE_MANAGER.getAuthorities()), updated.getAuthorityMask());
+		assertEquals(user.getAuthorizationVersion() + 1, updated.getAuthorizationVersion());
+		assertEquals(manager.getAuthorizationVersion(), userRepository.findById(manager.getId()).orElseThrow().getAuthorizationVersion());
+		assertEquals(Role.ROLE_MANAGER.name(), userService.findUserByUsername(user.getUsername()).getRole());
+		assertTrue(tokenRevocationService.isRevoked(tokenIssuedBefore(user)));
+		assertFalse(tokenRevocationService.isRevoked(tokenIssuedBefore(manager)));
+	}
+
+	@Test
+	void unlockingForgetsFailedLogins() throws Exception {
+
+		User user = saveUser(Role.ROLE_USER, true, false);
+		for(int attempt = 0; attempt < 6; attempt++){
+			loginAttemptService.addUserToLoginAttemptCache(user.getUsername());
+		}
+
+		BulkUpdateResult result = userService.updateUsers(new BulkUserUpdate(List.of(user.getId()), null, null, false, null));
+
+		assertEquals(1, result.getUpdated());
+		assertTrue(userRepository.findById(user.getId()).orElseThrow().isNotLocked());
+		assertFalse(loginAttemptService.hasExceededMaxAttempts(user.getUsername()));
+	}
+
+	@Test
+	void filterSelectsEveryChunk() throws Exception {
+
+		List<User> users = new ArrayList<>();
+		for(int user = 0; user < 510; user++){ // More than one chunk.
+			users.add(newUser(Role.ROLE_GATEWAY, false, true));
+		}
+		userRepository.saveAll(users);
+		BulkUserUpdate update = new BulkUserUpdate(null, new BulkUserUpdate.Filter("role_gateway", false, null), null, null, true);
+
+		BulkUpdateResult result = userService.updateUsers(update);
+
+		assertTrue(result.getMatched() >= 510);
+		assertEquals(result.getMatched(), result.getUpdated());
+		assertTrue(userRepository.findAllById(users.stream().map(User::getId).collect(Collectors.toList()))
+		                         .stream().allMatch(User::isActive));
+		assertEquals(0, userService.updateUsers(update).getMatched());
+	}
+
+	@Test
+	void updatesWithoutUsersOrChangesAreRejected() {
+
+		assertThrows(BulkUpdateNotValidException.class, () -> userService.updateUsers(new BulkUserUpdate(null, null, null, true, null)));
+		assertThrows(BulkUpdateNotValidException.class, () -> userService.updateUsers(
+				new BulkUserUpdate(List.of(1L), new BulkUserUpdate.Filter(), null, true, null)));
+		assertThrows(BulkUpdateNotValidException.class, () -> userService.updateUsers(new BulkUserUpdate(List.of(1L), null, null, null, null)));
+		assertThrows(BulkUpdateNotValidException.class, () -> userService.updateUsers(new BulkUserUpdate(List.of(1L), null, "role_king", null, null)));
+	}
+
+	private static VerifiedToken tokenIssuedBefore(User user) {
+		return new VerifiedToken(null, user.getUsername(), Collections.emptyList(), new Date(System.currentTimeMillis() - 5_000),
+				new Date(System.currentTimeMillis() + 60_000), null, null);
+	}
+
+	private User saveUser(Role role, boolean active, boolean notLocked) {
+		return userRepository.save(newUser(role, active, notLocked));
+	}
+
+	private static User newUser(Role role, boolean active, boolean notLocked) {
+		String username = "user-" + UUID.randomUUID().toString().substring(0, 8);
+		return User.builder()
+		           .userId(username)
+		           .firstName("Bulk")
+		           .lastName("Update")
+		           .username(username)
+		           .email(username + "@example.com")
+		           .password("password")
+		           .joinDate(new Date())
+		           .role(role.name())
+		           .authorities(role.getAuthorities())
+		           .isActive(active)
+		           .isNotLocked(notLocked)
+		           .build();
+	}
+}
@@ -0,0 +1,139 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.enumeration.Role;
+import com.example.securitymodule.enumeration.UserFileFormat;
+import com.example.securitymodule.exception.domain.ServerBusyException;
+import com.example.securitymodule.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserExportServiceTests {
+
+	@Autowired
+	private UserExportService userExportService;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void csvQuotesOnlyWhatNeedsIt() throws Exception {
+
+		User user = saveUser("Smith, \"Jr\"", "Line\nTwo");
+
+		String csv = export(UserFileFormat.CSV, false);
+
+		assertTrue(csv.startsWith("userId,firstName,lastName,username,email,"));
+		assertTrue(csv.contains(user.getUserId() + ",\"Smith, \"\"Jr\"\"\",\"Line\nTwo\"," + user.getUsername() + "," + user.getEmail() + ","));
+		assertTrue(csv.contains("," + Role.ROLE_USER.name() + ",true,true\n"));
+	}
+
+	@Test
+	void ndjsonHasOneUserPerLineAndNoSecrets() throws Exception {
+
+		User user = saveUser("Plain", "User");
+
+		String[] lines = export(UserFileFormat.NDJSON, true).split("\n");
+
+		assertEquals(userRepository.count(), lines.length);
+		List<String> usernames = new ArrayList<>();
+		for(String line : lines){
+			JsonNode node = objectMapper.readTree(line);
+			assertFalse(node.has("password"));
+			assertFalse(node.has("id"));
+			usernames.add(node.get("username").asText());
+		}
+		assertTrue(usernames.contains(user.getUsername()));
+	}
+
+	@Test
+	void exportsBeyondTheLimitAreRefused() throws Exception {
+
+		CountDownLatch opened = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		List<CompletableFuture<Void>> running = new ArrayList<>();
+
+		try {
+			for(int export = 0; export < 2; export++){ // security.user-export.maximum-concurrent
+				running.add(CompletableFuture.runAsync(() -> {
+					try {
+						userExportService.export(UserFileFormat.CSV, false, () -> {
+							opened.countDown();
+							awaitQuietly(release);
+							return new ByteArrayOutputStream();
+						});
+					} catch (Exception exception){
+						throw new IllegalStateException(exception);
+					}
+				}));
+			}
+			opened.await();
+
+			assertThrows(ServerBusyException.class, () -> userExportService.export(UserFileFormat.CSV, false, ByteArrayOutputStream::new));
+		} finally {
+			release.countDown();
+		}
+
+		running.forEach(CompletableFuture::join);
+		assertFalse(export(UserFileFormat.CSV, false).isEmpty()); // Permits are given back.
+	}
+
+	private String export(UserFileFormat format, boolean gzip) throws ServerBusyException, IOException {
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		userExportService.export(format, gzip, () -> outputStream);
+		byte[] bytes = outputStream.toByteArray();
+
+		if(gzip){
+			try(GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(bytes))){
+				bytes = inputStream.readAllBytes();
+			}
+		}
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private User saveUser(String firstName, String lastName) {
+		String username = "user-" + UUID.randomUUID().toString().substring(0, 8);
+		return userRepository.save(User.builder()
+		                               .userId(username)
+		                               .firstName(firstName)
+		                               .lastName(lastName)
+		                               .username(username)
+		                               .email(username + "@example.com")
+		                               .password("password")
+		                               .joinDate(new Date())
+		                               .role(Role.ROLE_USER.name())
+		                               .authorities(Role.ROLE_USER.getAuthorities())
+		                               .isActive(true)
+		                               .isNotLocked(true)
+		                               .build());
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException exception){
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.ImportError;
+import com.example.securitymodule.domain.ImportResult;
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.enumeration.Role;
+import com.example.securitymodule.enumeration.UserFileFormat;
+import com.example.securitymodule.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static com.example.securitymodule.constant.UserImplConstant.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserImportServiceTests {
+
+	@Autowired
+	private UserImportService userImportService;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private PasswordHashingService passwordHashingService;
+	@Autowired
+	private BCryptPasswordEncoder bCryptPasswordEncoder;
+
+	private String prefix;
+
+	@BeforeEach
+	void setUp() {
+		prefix = UUID.randomUUID().toString().substring(0, 8) + "-"; // Every test imports names of its own.
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest())); // For the image URL.
+	}
+
+	@AfterEach
+	void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void csvErrorsNameTheirLines() throws Exception {
+
+		User existing = saveUser(prefix + "existing");
+		String csv = String.join("\n",
+				"firstName,lastName,username,email,role",
+				"Ann,One," + name("ann") + "," + email("ann") + ",",
+				"Dup,Username," + name("ann") + "," + email("other") + ",",
+				"Dup,Email," + name("dup") + "," + email("ann") + ",",
+				"Taken,Username," + existing.getUsername() + "," + email("taken") + ",",
+				"Taken,Email," + name("taken") + "," + existing.getEmail() + ",",
+				"Bad,Role," + name("king") + "," + email("king") + ",ROLE_KING",
+				"",
+				"\"Open,Quote," + name("open") + "," + email("open"),
+				"\"Smith, \"\"Jr\"\"\",Two," + name("smith") + "," + email("smith") + ",role_manager");
+
+		ImportResult result = importUsers(UserFileFormat.CSV, csv);
+
+		assertEquals(2, result.getImported());
+		assertEquals(6, result.getFailed());
+		assertErrors(result,
+				"3 " + name("ann") + " " + THIS_USERNAME_ALREADY_EXISTS,
+				"4 " + name("dup") + " " + THIS_EMAIL_ADDRESS_ALREADY_EXISTS,
+				"5 " + existing.getUsername() + " " + THIS_USERNAME_ALREADY_EXISTS,
+				"6 " + name("taken") + " " + THIS_EMAIL_ADDRESS_ALREADY_EXISTS,
+				"7 " + name("king") + " " + ROLE_NOT_VALID,
+				"9 null " + ROW_NOT_VALID);
+
+		User smith = userRepository.findUserByUsername(name("smith"));
+		assertEquals("Smith, \"Jr\"", smith.getFirstName());
+		assertEquals(Role.ROLE_MANAGER.name(), smith.getRole());
+		assertEquals(existing.getId(), userRepository.findUserByEmail(existing.getEmail()).getId());
+	}
+
+	@Test
+	void ndjsonRowsThatCannotBeReadFailAlone() throws Exception {
+
+		String ndjson = String.join("\n",
+				"{\"username\":\"" + name("one") + "\",\"email\":\"" + email("one") + "\",\"active\":false}",
+				"{\"username\":",
+				"{\"username\":\"" + name("two") + "\",\"email\":\"" + email("two") + "\",\"password\":\"secret\"}");
+
+		ImportResult result = importUsers(UserFileFormat.NDJSON, ndjson);
+
+		assertEquals(2, result.getImported());
+		assertErrors(result, "2 null " + ROW_NOT_VALID);
+		assertFalse(userRepository.findUserByUsername(name("one")).isActive());
+		assertTrue(bCryptPasswordEncoder.matches("secret", userRepository.findUserByUsername(name("two")).getPassword()));
+	}
+
+	@Test
+	void nameTakenAfterValidationFailsOnlyItsRow() throws Exception {
+
+		CountDownLatch release = new CountDownLatch(1);
+		String csv = String.join("\n",
+				"firstName,lastName,username,email",
+				"A,One," + name("a") + "," + email("a"),
+				"B,Two," + name("b") + "," + email("b"),
+				"C,Three," + name("c") + "," + email("c"));
+		CompletableFuture<ImportResult> imported;
+
+		try {
+			blockHashing(release);
+			imported = CompletableFuture.supplyAsync(() -> {
+				RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+				try {
+					return importUsers(UserFileFormat.CSV, csv);
+				} catch (Exception exception){
+					throw new IllegalStateException(exception);
+				}
+			});
+
+			Thread.sleep(300); // Validated, now waiting for the hashes.
+			saveUser(name("b"));
+		} finally {
+			release.countDown();
+		}
+
+		ImportResult result = imported.join();
+		assertEquals(2, result.getImported());
+		assertErrors(result, "3 " + name("b") + " " + THIS_USERNAME_ALREADY_EXISTS);
+		assertNotNull(userRepository.findUserByUsername(name("a")));
+		assertNotNull(userRepository.findUserByUsername(name("c")));
+	}
+
+	@Test
+	void otherViolationsFallBackToOneRowAtATime() throws Exception {
+
+		String csv = String.join("\n",
+				"firstName,lastName,username,email",
+				"A,One," + name("a") + "," + email("a"),
+				"x".repeat(300) + ",Long," + name("long") + "," + email("long"), // Longer than the column.
+				"C,Three," + name("c") + "," + email("c"));
+
+		ImportResult result = importUsers(UserFileFormat.CSV, csv);
+
+		assertEquals(2, result.getImported());
+		assertErrors(result, "3 " + name("long") + " " + ROW_NOT_VALID);
+		assertNull(userRepository.findUserByUsername(name("long")));
+	}
+
+	private ImportResult importUsers(UserFileFormat format, String content) throws Exception {
+		return userImportService.importUsers(format, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static void assertErrors(ImportResult result, String... expected) {
+
+		List<String> errors = result.getErrors().stream()
+		                            .sorted(Comparator.comparingLong(ImportError::getLine)) // Unreadable rows fail while reading, the others per chunk.
+		                            .map(error -> error.getLine() + " " + error.getUsername() + " " + error.getMessage())
+		                            .collect(Collectors.toList());
+
+		assertEquals(List.of(expected), errors);
+		assertEquals(expected.length, result.getFailed());
+	}
+
+	//    Keeps every hashing thread busy, so an import waits between validation and insert.
+	private void blockHashing(CountDownLatch release) throws Exception {
+		for(int thread = 0; thread < Runtime.getRuntime().availableProcessors(); thread++){
+			passwordHashingService.submit(() -> {
+				try {
+					release.await();
+				} catch (InterruptedException exception){
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			});
+		}
+	}
+
+	private User saveUser(String username) {
+		return userRepository.save(User.builder()
+		                               .userId(username)
+		                               .firstName("Existing")
+		                               .lastName("User")
+		                               .username(username)
+		                               .email(username + "@example.com")
+		                               .password("password")
+		                               .joinDate(new Date())
+		                               .role(Role.ROLE_USER.name())
+		                               .authorities(Role.ROLE_USER.getAuthorities())
+		                               .isActive(true)
+		                               .isNotLocked(true)
+		                               .build());
+	}
+
+	private String name(String name) {
+		return prefix + name;
+	}
+
+	private String email(String name) {
+		return prefix + name + "@example.com";
+	}
+}
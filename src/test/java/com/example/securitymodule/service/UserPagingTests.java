@@ -0,0 +1,134 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.domain.UserPage;
+import com.example.securitymodule.domain.UserSummary;
+import com.example.securitymodule.enumeration.Role;
+import com.example.securitymodule.exception.domain.CursorNotValidException;
+import com.example.securitymodule.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserPagingTests {
+
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void pagesVisitEveryUserOnceInIdOrder() throws Exception {
+
+		for(int user = 0; user < 5; user++){
+			saveUser(Role.ROLE_USER, true, true);
+		}
+		List<Long> expected = userRepository.findAll(Sort.by("id")).stream().map(User::getId).collect(Collectors.toList());
+
+		List<Long> visited = new ArrayList<>();
+		String cursor = null;
+		do {
+			UserPage page = userService.getUsers(cursor, 2, null, null, null, null);
+			assertTrue(page.getUsers().size() <= 2);
+			page.getUsers().forEach(user -> visited.add(user.getId()));
+			cursor = page.getNextCursor();
+		} while(cursor != null);
+
+		assertEquals(expected, visited);
+	}
+
+	@Test
+	void filtersHoldOnEveryPage() throws Exception {
+
+		List<String> saved = new ArrayList<>();
+		for(int user = 0; user < 3; user++){
+			saved.add(saveUser(Role.ROLE_MANAGER, false, false).getUsername());
+		}
+		saveUser(Role.ROLE_MANAGER, true, true);
+
+		List<String> visited = new ArrayList<>();
+		String cursor = null;
+		do {
+			UserPage page = userService.getUsers(cursor, 1, "role_manager", null, false, true);
+			for(UserSummary user : page.getUsers()){
+				assertEquals(Role.ROLE_MANAGER.name(), user.getRole());
+				assertFalse(user.isActive());
+				assertFalse(user.isNotLocked());
+				visited.add(user.getUsername());
+			}
+			cursor = page.getNextCursor();
+		} while(cursor != null);
+
+		assertTrue(visited.containsAll(saved));
+	}
+
+	@Test
+	void authorityFilterMatchesEveryRoleHoldingIt() throws Exception {
+
+		String admin = saveUser(Role.ROLE_ADMIN, true, true).getUsername();
+		String superAdmin = saveUser(Role.ROLE_SUPER_ADMIN, true, true).getUsername();
+		String user = saveUser(Role.ROLE_USER, true, true).getUsername();
+
+		List<String> visited = new ArrayList<>();
+		String cursor = null;
+		do {
+			UserPage page = userService.getUsers(cursor, 2, null, "user:create", null, null);
+			for(UserSummary summary : page.getUsers()){
+				assertTrue(Arrays.asList(summary.getAuthorities()).contains("user:create"));
+				visited.add(summary.getUsername());
+			}
+			cursor = page.getNextCursor();
+		} while(cursor != null);
+
+		assertTrue(visited.containsAll(List.of(admin, superAdmin)));
+		assertFalse(visited.contains(user));
+		assertTrue(userService.getUsers(null, null, null, "report:export", null, null).getUsers().isEmpty()); // No such authority.
+	}
+
+	@Test
+	void pageSizeIsClamped() throws Exception {
+
+		saveUser(Role.ROLE_USER, true, true);
+		saveUser(Role.ROLE_USER, true, true);
+
+		UserPage page = userService.getUsers(null, 0, null, null, null, null);
+
+		assertEquals(1, page.getUsers().size());
+		assertNotNull(page.getNextCursor());
+		assertTrue(userService.getUsers(null, 1000, null, null, null, null).getUsers().size() <= 100);
+	}
+
+	@Test
+	void malformedCursorIsRejected() {
+		assertThrows(CursorNotValidException.class, () -> userService.getUsers("not a cursor!", null, null, null, null, null));
+		assertThrows(CursorNotValidException.class, () -> userService.getUsers("AAAA", null, null, null, null, null)); // Base64, but not a long.
+	}
+
+	private User saveUser(Role role, boolean active, boolean notLocked) {
+		String username = "user-" + UUID.randomUUID().toString().substring(0, 8);
+		return userRepository.save(User.builder()
+		                               .userId(username)
+		                               .firstName("Page")
+		                               .lastName("Test")
+		                               .username(username)
+		                               .email(username + "@example.com")
+		                               .password("password")
+		                               .joinDate(new Date())
+		                               .role(role.name())
+		                               .authorities(role.getAuthorities())
+		                               .isActive(active)
+		                               .isNotLocked(notLocked)
+		                               .build());
+	}
+}
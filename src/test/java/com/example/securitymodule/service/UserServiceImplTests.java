@@ -0,0 +1,186 @@
+package com.example.securitymodule.service;
+
+import com.example.securitymodule.domain.User;
+import com.example.securitymodule.enumeration.Role;
+import com.example.securitymodule.exception.domain.EmailExistsException;
+import com.example.securitymodule.exception.domain.UsernameExistsException;
+import com.example.securitymodule.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserServiceImplTests {
+
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private PasswordHashingService passwordHashingService;
+	@Autowired
+	private DataSource dataSource;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private UserDetailsService userDetailsService;
+	@Autowired
+	private LoginAttemptService loginAttemptService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void registerReturnsAndHoldsNoConnectionWhileHashing() throws Exception {
+
+		CountDownLatch release = new CountDownLatch(1);
+		String username = newUsername();
+		CompletableFuture<User> registered;
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest())); // For the image URL.
+
+		try {
+			for(int thread = 0; thread < Runtime.getRuntime().availableProcessors(); thread++){
+				passwordHashingService.submit(() -> { // Keeps every hashing thread busy, so the password waits in the queue.
+					try {
+						release.await();
+					} catch (InterruptedException exception){
+						Thread.currentThread().interrupt();
+					}
+					return null;
+				});
+			}
+
+			registered = userService.register("Hash", "Later", username, username + "@example.com"); // The caller is not kept waiting.
+
+			Thread.sleep(300);
+			assertFalse(registered.isDone());
+			assertEquals(0, ((HikariDataSource) dataSource).getHikariPoolMXBean().getActiveConnections());
+		} finally {
+			release.countDown();
+			RequestContextHolder.resetRequestAttributes();
+		}
+
+		assertEquals(username, registered.join().getUsername());
+		assertNotNull(userService.findUserByUsername(username));
+	}
+
+	@Test
+	void updateDoesNotUndoAWriteMissedByTheCache() throws Exception {
+
+		User user = saveUser();
+		userService.findUserByUsername(user.getUsername()); // Cached here, before the write of another node below.
+		changePasswordElsewhere(user);
+
+		userService.updateUser(user.getUsername(), "New", "Name", user.getUsername(), user.getEmail(),
+				Role.ROLE_USER.name(), true, true, null);
+
+		User saved = userRepository.findUserByUsername(user.getUsername());
+		assertEquals("New", saved.getFirstName());
+		assertEquals("changed-elsewhere", saved.getPassword());
+	}
+
+	@Test
+	void lockOnLoginDoesNotUndoAWriteMissedByTheCache() {
+
+		User user = saveUser();
+		userService.findUserByUsername(user.getUsername());
+		changePasswordElsewhere(user);
+		for(int attempt = 0; attempt < 6; attempt++){
+			loginAttemptService.addUserToLoginAttemptCache(user.getUsername());
+		}
+
+		assertFalse(userDetailsService.loadUserByUsername(user.getUsername()).isAccountNonLocked());
+
+		User saved = userRepository.findUserByUsername(user.getUsername());
+		assertFalse(saved.isNotLocked());
+		assertEquals("changed-elsewhere", saved.getPassword());
+		loginAttemptService.evictUserFromLoginAttemptCache(user.getUsername());
+	}
+
+	@Test
+	void staleCachedCopyCannotBeSaved() {
+
+		User user = saveUser();
+		User stale = userService.findUserByUsername(user.getUsername());
+		changePasswordElsewhere(user);
+		stale.setFirstName("Stale");
+
+		assertThrows(ObjectOptimisticLockingFailureException.class, () -> userRepository.save(stale));
+		assertEquals("changed-elsewhere", userRepository.findUserByUsername(user.getUsername()).getPassword());
+	}
+
+	@Test
+	void registerLeavesTakenNamesToTheConstraints() throws Exception {
+
+		User user = saveUser(); // Straight to the database, so the availability index has not seen it.
+		String username = newUsername();
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+		try {
+			CompletableFuture<User> sameName = userService.register("Same", "Name", user.getUsername(), username + "@example.com");
+			CompletableFuture<User> sameEmail = userService.register("Same", "Email", username, user.getEmail());
+
+			assertInstanceOf(UsernameExistsException.class, assertThrows(CompletionException.class, sameName::join).getCause());
+			assertInstanceOf(EmailExistsException.class, assertThrows(CompletionException.class, sameEmail::join).getCause());
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+
+		assertNull(userRepository.findUserByUsername(username));
+	}
+
+	@Test
+	void renameToATakenUsernameChangesNothing() {
+
+		User user = saveUser();
+		User other = saveUser();
+
+		assertThrows(UsernameExistsException.class, () -> userService.updateUser(user.getUsername(), "New", "Name",
+				other.getUsername(), user.getEmail(), Role.ROLE_USER.name(), true, true, null));
+		assertThrows(EmailExistsException.class, () -> userService.updateUser(user.getUsername(), "New", "Name",
+				user.getUsername(), other.getEmail(), Role.ROLE_USER.name(), true, true, null));
+
+		assertEquals("Old", userRepository.findUserByUsername(user.getUsername()).getFirstName());
+		assertEquals("Old", userService.findUserByUsername(user.getUsername()).getFirstName());
+		assertEquals(other.getId(), userRepository.findUserByUsername(other.getUsername()).getId());
+	}
+
+	private User saveUser() {
+		String username = newUsername();
+		return userRepository.save(User.builder()
+		                               .userId(username)
+		                               .firstName("Old")
+		                               .lastName("Name")
+		                               .username(username)
+		                               .email(username + "@example.com")
+		                               .password("original")
+		                               .joinDate(new Date())
+		                               .role(Role.ROLE_USER.name())
+		                               .authorities(Role.ROLE_USER.getAuthorities())
+		                               .isActive(true)
+		                               .isNotLocked(true)
+		                               .build());
+	}
+
+	//    As another node would: straight to the database, with no eviction from this node's cache.
+	private void changePasswordElsewhere(User user) {
+		jdbcTemplate.update("UPDATE user SET password = 'changed-elsewhere', version = version + 1 WHERE id = ?", user.getId());
+	}
+
+	private static String newUsername() {
+		return "user-" + UUID.randomUUID().toString().substring(0, 8);
+	}
+}
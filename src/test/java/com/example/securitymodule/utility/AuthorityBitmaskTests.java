@@ -0,0 +1,60 @@
+package com.example.securitymodule.utility;
+
+import com.example.securitymodule.enumeration.Role;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.securitymodule.constant.Authority.ALL_AUTHORITIES;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorityBitmaskTests {
+
+	@Test
+	void everyRoleSurvivesTheRoundTrip() {
+
+		for(Role role : Role.values()){
+			int mask = AuthorityBitmask.toKnownMask(role.getAuthorities());
+
+			assertArrayEquals(role.getAuthorities(), AuthorityBitmask.toAuthorityNames(mask));
+			assertSame(AuthorityBitmask.toAuthorities(mask), AuthorityBitmask.toAuthorities(role.getAuthorities())); // One shared list per mask.
+		}
+	}
+
+	@Test
+	void unknownAuthorityKeepsTheStringForm() {
+
+		String[] authorities = {"user:read", "report:export"};
+
+		assertEquals(AuthorityBitmask.UNKNOWN, AuthorityBitmask.toMask(authorities));
+		assertThrows(IllegalArgumentException.class, () -> AuthorityBitmask.toKnownMask(authorities));
+		assertEquals(List.of(new SimpleGrantedAuthority("user:read"), new SimpleGrantedAuthority("report:export")),
+					 AuthorityBitmask.toAuthorities(authorities));
+	}
+
+	@Test
+	void masksWithListEveryMaskHoldingTheAuthority() {
+
+		List<Integer> masks = AuthorityBitmask.masksWith("user:delete");
+
+		assertEquals(1 << (ALL_AUTHORITIES.length - 1), masks.size()); // Half of all masks.
+		for(int mask : masks){
+			assertTrue(Arrays.asList(AuthorityBitmask.toAuthorityNames(mask)).contains("user:delete"));
+		}
+		assertTrue(AuthorityBitmask.masksWith("report:export").isEmpty());
+	}
+
+	@Test
+	void sharedListsCannotBeChanged() {
+
+		List<GrantedAuthority> authorities = AuthorityBitmask.toAuthorities(1);
+		String[] names = AuthorityBitmask.toAuthorityNames(1);
+		names[0] = "changed";
+
+		assertThrows(UnsupportedOperationException.class, () -> authorities.add(new SimpleGrantedAuthority("user:delete")));
+		assertEquals("user:read", AuthorityBitmask.toAuthorityNames(1)[0]);
+	}
+}
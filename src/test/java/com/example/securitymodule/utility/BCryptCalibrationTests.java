@@ -0,0 +1,18 @@
+package com.example.securitymodule.utility;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BCryptCalibrationTests {
+
+	@Test
+	void generousBudgetStopsAtTheMaximum() {
+		assertEquals(6, BCryptCalibration.calibrateStrength(60_000, 4, 6));
+	}
+
+	@Test
+	void tooSmallBudgetStillUsesTheMinimum() {
+		assertEquals(5, BCryptCalibration.calibrateStrength(0, 5, 8));
+	}
+}
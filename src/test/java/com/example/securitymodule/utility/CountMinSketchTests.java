@@ -0,0 +1,51 @@
+package com.example.securitymodule.utility;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchTests {
+
+	@Test
+	void estimatesAreNeverTooLow() {
+
+		CountMinSketch sketch = new CountMinSketch(4, 64); // Far fewer counters than keys, so collisions are certain.
+
+		for(int key = 0; key < 1000; key++){
+			for(int occurrence = 0; occurrence <= key % 10; occurrence++){
+				sketch.add("key-" + key);
+			}
+		}
+
+		for(int key = 0; key < 1000; key++){
+			assertTrue(sketch.estimate("key-" + key) >= key % 10 + 1);
+		}
+	}
+
+	@Test
+	void fewKeysAreCountedExactlyAndDecayByHalf() {
+
+		CountMinSketch sketch = new CountMinSketch(4, 4096);
+
+		for(int occurrence = 1; occurrence <= 9; occurrence++){
+			assertEquals(occurrence, sketch.add("10.0.0.1"));
+		}
+		assertEquals(0, sketch.estimate("10.0.0.2"));
+
+		sketch.decay();
+
+		assertEquals(4, sketch.estimate("10.0.0.1"));
+	}
+
+	@Test
+	void widthIsRoundedUpToAPowerOfTwo() {
+
+		CountMinSketch sketch = new CountMinSketch(2, 100);
+
+		for(int occurrence = 0; occurrence < 3; occurrence++){
+			sketch.add("key");
+		}
+
+		assertEquals(3, sketch.estimate("key"));
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.securitymodule.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHittersTests {
+
+	@Test
+	void heaviestKeysAreFoundAmongNoise() {
+
+		HeavyHitters heavyHitters = new HeavyHitters(4, 1024, 3);
+
+		for(int round = 0; round < 100; round++){
+			heavyHitters.add("attacker-1");
+			heavyHitters.add("attacker-2");
+			if(round % 2 == 0){
+				heavyHitters.add("attacker-3");
+			}
+			heavyHitters.add("client-" + round); // Each seen once.
+		}
+
+		List<Map.Entry<String, Integer>> top = heavyHitters.getTop();
+		List<String> keys = top.stream().map(Map.Entry::getKey).collect(Collectors.toList());
+
+		assertEquals(3, top.size());
+		assertTrue(keys.subList(0, 2).containsAll(List.of("attacker-1", "attacker-2"))); // Most frequent first.
+		assertEquals("attacker-3", keys.get(2));
+		assertTrue(top.get(2).getValue() >= 50);
+	}
+
+	@Test
+	void decayForgetsKeysThatStopped() {
+
+		HeavyHitters heavyHitters = new HeavyHitters(4, 1024, 3);
+
+		heavyHitters.add("once");
+		for(int occurrence = 0; occurrence < 8; occurrence++){
+			heavyHitters.add("often");
+		}
+
+		heavyHitters.decay();
+
+		assertEquals(List.of(Map.entry("often", 4)), heavyHitters.getTop());
+		assertEquals(0, heavyHitters.estimate("once"));
+	}
+}
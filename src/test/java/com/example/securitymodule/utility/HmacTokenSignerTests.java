@@ -0,0 +1,137 @@
+package com.example.securitymodule.utility;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static com.example.securitymodule.constant.Authority.ALL_AUTHORITIES;
+import static com.example.securitymodule.constant.Authority.SUPER_ADMIN_AUTHORITIES;
+import static com.example.securitymodule.utility.JWTTokenProvider.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//  The fast signer must produce exactly the token java-jwt's builder would, so either path can be switched on at any time.
+class HmacTokenSignerTests {
+
+	private static final byte[] SECRET = "a-test-secret-that-is-long-enough-for-hs512".getBytes(StandardCharsets.UTF_8);
+	private static final String SUBJECT_TO_ESCAPE = "quote\" backslash\\ slash/ control\b\t\n\f\r\u0001\u001f del\u007f é 日本 😀  ";
+
+	private final HmacTokenSigner hmacTokenSigner = new HmacTokenSigner(SECRET);
+	private final Algorithm algorithm = Algorithm.HMAC512(SECRET);
+	private final Date issuedAt = new Date(1_700_000_000_123L); // Not a whole second, both must drop the millis.
+	private final Date expiresAt = new Date(issuedAt.getTime() + 600_000);
+	private final String tokenId = UUID.randomUUID().toString();
+
+	@Test
+	void accessTokenWithAuthoritiesArrayIsIdentical() {
+		assertAccessTokensEqual("admin", AuthorityBitmask.UNKNOWN);
+	}
+
+	@Test
+	void accessTokenWithAuthorityMaskIsIdentical() {
+		assertAccessTokensEqual("admin", AuthorityBitmask.toMask(SUPER_ADMIN_AUTHORITIES));
+	}
+
+	@Test
+	void refreshTokenIsIdentical() {
+		assertRefreshTokensEqual("admin", Long.MAX_VALUE); // A long claim that does not fit in an int.
+	}
+
+	@Test
+	void subjectIsEscapedLikeJackson() {
+
+		assertAccessTokensEqual(SUBJECT_TO_ESCAPE, AuthorityBitmask.UNKNOWN);
+		assertRefreshTokensEqual(SUBJECT_TO_ESCAPE, 7);
+	}
+
+	@Test
+	void authoritiesAreEscapedLikeJackson() {
+
+		String[] authorities = {"user:read", "custom:\"quoted\"", "tab\there", "ünïcode"};
+
+		assertEquals(accessTokenBuilder("admin", authorities, AuthorityBitmask.UNKNOWN, issuedAt, expiresAt, tokenId).sign(algorithm),
+					 hmacTokenSigner.sign(accessTokenClaims("admin", authorities, AuthorityBitmask.UNKNOWN, issuedAt, expiresAt, tokenId)));
+	}
+
+	@Test
+	void claimOrderOfTheMapDoesNotMatter() {
+
+		Map<String, Object> claims = accessTokenClaims("admin", SUPER_ADMIN_AUTHORITIES, AuthorityBitmask.UNKNOWN, issuedAt, expiresAt, tokenId);
+		List<String> keys = new ArrayList<>(claims.keySet());
+		Collections.reverse(keys);
+		Map<String, Object> reversed = new LinkedHashMap<>();
+		keys.forEach(key -> reversed.put(key, claims.get(key)));
+		String expected = accessTokenBuilder("admin", SUPER_ADMIN_AUTHORITIES, AuthorityBitmask.UNKNOWN, issuedAt, expiresAt, tokenId).sign(algorithm);
+
+		assertEquals(expected, hmacTokenSigner.sign(reversed));
+		assertEquals(expected, hmacTokenSigner.sign(new TreeMap<>(claims)));
+	}
+
+	@Test
+	void unknownClaimIsRejected() {
+
+		Map<String, Object> claims = new HashMap<>(refreshTokenClaims("admin", 1, "family", issuedAt, expiresAt, tokenId));
+		claims.put("scope", "admin");
+
+		assertThrows(IllegalArgumentException.class, () -> hmacTokenSigner.sign(claims));
+	}
+
+	@Test
+	void randomTokensAreIdentical() {
+
+		Random random = new Random(42); // Fixed, so a failure can be replayed.
+
+		for(int token = 0; token < 2000; token++){
+			String username = randomString(random);
+			Date issued = new Date(random.nextLong() & 0xFFFFFFFFFFFL);
+			Date expires = new Date(issued.getTime() + random.nextInt(Integer.MAX_VALUE));
+			String id = UUID.randomUUID().toString();
+
+			if(random.nextBoolean()){
+				int authorityMask = random.nextBoolean() ? AuthorityBitmask.UNKNOWN : random.nextInt(1 << ALL_AUTHORITIES.length);
+				String[] authorities = {randomString(random), randomString(random)};
+				assertEquals(accessTokenBuilder(username, authorities, authorityMask, issued, expires, id).sign(algorithm),
+							 hmacTokenSigner.sign(accessTokenClaims(username, authorities, authorityMask, issued, expires, id)));
+			} else{
+				long authorizationVersion = random.nextLong();
+				String familyId = randomString(random);
+				assertEquals(refreshTokenBuilder(username, authorizationVersion, familyId, issued, expires, id).sign(algorithm),
+							 hmacTokenSigner.sign(refreshTokenClaims(username, authorizationVersion, familyId, issued, expires, id)));
+			}
+		}
+	}
+
+	private static String randomString(Random random) {
+
+		StringBuilder value = new StringBuilder();
+		for(int i = random.nextInt(20); i > 0; i--){
+			value.append((char) (random.nextBoolean() ? random.nextInt(0x80) : random.nextInt(0xD800))); // ASCII with controls, and beyond.
+		}
+		return value.toString();
+	}
+
+	private void assertAccessTokensEqual(String username, int authorityMask) {
+
+		assertEquals(accessTokenBuilder(username, SUPER_ADMIN_AUTHORITIES, authorityMask, issuedAt, expiresAt, tokenId).sign(algorithm),
+					 hmacTokenSigner.sign(accessTokenClaims(username, SUPER_ADMIN_AUTHORITIES, authorityMask, issuedAt, expiresAt, tokenId)));
+	}
+
+	private void assertRefreshTokensEqual(String username, long authorizationVersion) {
+
+		String familyId = UUID.randomUUID().toString();
+
+		assertEquals(refreshTokenBuilder(username, authorizationVersion, familyId, issuedAt, expiresAt, tokenId).sign(algorithm),
+					 hmacTokenSigner.sign(refreshTokenClaims(username, authorizationVersion, familyId, issuedAt, expiresAt, tokenId)));
+	}
+}
@@ -0,0 +1,71 @@
+package com.example.securitymodule.utility;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.example.securitymodule.domain.VerifiedToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.UUID;
+
+import static com.example.securitymodule.constant.Authority.SUPER_ADMIN_AUTHORITIES;
+import static com.example.securitymodule.constant.SecurityConstant.ACCESS_EXPIRATION_TIME;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class JWTTokenProviderTests {
+
+	private static final String USERNAME = "jwt-user";
+
+	@Autowired
+	private JWTTokenProvider jwtTokenProvider;
+	@Value("${jwt.secret}")
+	private String secret;
+
+	@Test
+	void verifiedTokenCarriesEverythingTheFilterNeeds() {
+
+		String token = jwtTokenProvider.generateJwtAccessToken(USERNAME, SUPER_ADMIN_AUTHORITIES);
+		VerifiedToken verifiedToken = jwtTokenProvider.verifyToken(token);
+
+		assertEquals(USERNAME, verifiedToken.getSubject());
+		assertEquals(AuthorityBitmask.toAuthorities(SUPER_ADMIN_AUTHORITIES), verifiedToken.getAuthorities());
+		assertNotNull(verifiedToken.getTokenId());
+		assertEquals(ACCESS_EXPIRATION_TIME, verifiedToken.getExpiresAt().getTime() - verifiedToken.getIssuedAt().getTime());
+		assertNull(verifiedToken.getFamilyId()); // Only refresh tokens belong to a family.
+		assertTrue(jwtTokenProvider.isTokenValid(verifiedToken));
+	}
+
+	@Test
+	void tamperedTokenIsRejected() {
+
+		String token = jwtTokenProvider.generateJwtAccessToken(USERNAME, SUPER_ADMIN_AUTHORITIES);
+		int signature = token.lastIndexOf('.') + 1;
+		String tampered = token.substring(0, signature) + (token.charAt(signature) == 'A' ? 'B' : 'A') + token.substring(signature + 1);
+
+		assertThrows(JWTVerificationException.class, () -> jwtTokenProvider.verifyToken(tampered));
+	}
+
+	@Test
+	void hotTokenSkipsTheSignatureCheck() {
+
+		String token = jwtTokenProvider.generateJwtAccessToken(USERNAME, SUPER_ADMIN_AUTHORITIES);
+
+		assertSame(jwtTokenProvider.verifyToken(token), jwtTokenProvider.verifyToken(token)); // The second one comes from the cache.
+	}
+
+	@Test
+	void authorityMaskClaimGrantsTheSameAuthorities() {
+
+		Date issuedAt = new Date();
+		String token = JWTTokenProvider.accessTokenBuilder(USERNAME, SUPER_ADMIN_AUTHORITIES, AuthorityBitmask.toMask(SUPER_ADMIN_AUTHORITIES),
+														   issuedAt, new Date(issuedAt.getTime() + ACCESS_EXPIRATION_TIME), UUID.randomUUID().toString())
+										  .sign(Algorithm.HMAC512(secret.getBytes(StandardCharsets.UTF_8))); // As a node with the bitmask enabled signs it.
+
+		assertEquals(AuthorityBitmask.toAuthorities(SUPER_ADMIN_AUTHORITIES), jwtTokenProvider.verifyToken(token).getAuthorities());
+	}
+}
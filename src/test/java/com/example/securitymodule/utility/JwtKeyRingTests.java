@@ -0,0 +1,103 @@
+package com.example.securitymodule.utility;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyRingTests {
+
+	private static final String PASSWORD = "key-ring-test";
+
+	@Test
+	void asymmetricSigningWithoutKeyStoreFailsStartup() {
+
+		assertThrows(IllegalStateException.class, () -> new JwtKeyRing("RS256", "", "", "", false));
+		assertThrows(IllegalStateException.class, () -> new JwtKeyRing("ES256", "", "", "", false));
+	}
+
+	@Test
+	void sharedSecretNeedsNoKeyStore() throws Exception {
+
+		JwtKeyRing jwtKeyRing = new JwtKeyRing("HS512", "", "", "", false);
+
+		assertFalse(jwtKeyRing.isAsymmetric());
+		assertTrue(((List<?>) jwtKeyRing.getJwks().get("keys")).isEmpty());
+	}
+
+	@Test
+	void tokenVerifiesWithThePublishedRsaKey() throws Exception {
+
+		JwtKeyRing jwtKeyRing = new JwtKeyRing("RS256", "", "", "", true); // Generated keys, for development only.
+		String token = JWT.create().withSubject("rsa-user").sign(jwtKeyRing.getAlgorithm());
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> jwk = ((List<Map<String, Object>>) jwtKeyRing.getJwks().get("keys")).get(0);
+		RSAPublicKey publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(
+				decode(jwk.get("n")), decode(jwk.get("e"))));
+		DecodedJWT decodedJWT = JWT.require(Algorithm.RSA256(publicKey, null)).build().verify(token);
+
+		assertEquals(jwk.get("kid"), decodedJWT.getKeyId());
+		assertEquals("rsa-user", decodedJWT.getSubject());
+	}
+
+	@Test
+	void keyStoreKeysPublishTheirOwnType(@TempDir Path directory) throws Exception {
+
+		String keyStore = keyStore(directory, "es-key", "-keyalg", "EC", "-groupname", "secp256r1");
+
+		JwtKeyRing jwtKeyRing = new JwtKeyRing("ES256", keyStore, PASSWORD, "", false);
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> jwk = ((List<Map<String, Object>>) jwtKeyRing.getJwks().get("keys")).get(0);
+		assertEquals("es-key", jwk.get("kid"));
+		assertEquals("ES256", jwk.get("alg"));
+		assertEquals("EC", jwk.get("kty"));
+		assertEquals("es-key", JWT.decode(JWT.create().withSubject("ec-user").sign(jwtKeyRing.getAlgorithm())).getKeyId());
+	}
+
+	@Test
+	void keyOfTheWrongTypeFailsStartup(@TempDir Path directory) throws Exception {
+
+		String ecKeyStore = keyStore(directory, "es-key", "-keyalg", "EC", "-groupname", "secp256r1");
+		String p384KeyStore = keyStore(directory, "p384-key", "-keyalg", "EC", "-groupname", "secp384r1");
+
+		IllegalStateException exception = assertThrows(IllegalStateException.class, () -> new JwtKeyRing("RS256", ecKeyStore, PASSWORD, "", false));
+		assertTrue(exception.getMessage().contains("es-key"));
+		assertThrows(IllegalStateException.class, () -> new JwtKeyRing("ES256", p384KeyStore, PASSWORD, "", false)); // ES256 is P-256 only.
+	}
+
+	//    A PKCS12 key store with one self-signed key, as keytool writes it for production.
+	private static String keyStore(Path directory, String alias, String... keyOptions) throws Exception {
+
+		Path file = directory.resolve(alias + ".p12");
+		List<String> command = new ArrayList<>(List.of(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+				"-genkeypair", "-alias", alias, "-dname", "CN=" + alias, "-validity", "1", "-storetype", "PKCS12",
+				"-keystore", file.toString(), "-storepass", PASSWORD));
+		command.addAll(List.of(keyOptions));
+
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		String output = new String(process.getInputStream().readAllBytes());
+		assertEquals(0, process.waitFor(), output);
+
+		return "file:" + file;
+	}
+
+	private static BigInteger decode(Object base64Url) {
+		return new BigInteger(1, Base64.getUrlDecoder().decode((String) base64Url));
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.securitymodule.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalableBloomFilterTests {
+
+	@Test
+	void keysAreNeverMissedAfterGrowing() {
+
+		ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01); // A hundred times fewer than put below.
+
+		for(int key = 0; key < 10000; key++){
+			filter.put("user-" + key);
+		}
+
+		for(int key = 0; key < 10000; key++){
+			assertTrue(filter.mightContain("user-" + key));
+		}
+		assertEquals(10000, filter.approximateElementCount(), 500);
+	}
+
+	@Test
+	void falsePositivesStayNearTheRequestedProbability() {
+
+		ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+
+		for(int key = 0; key < 20000; key++){
+			filter.put("taken-" + key);
+		}
+
+		int falsePositives = 0;
+		for(int key = 0; key < 20000; key++){
+			if(filter.mightContain("free-" + key)){
+				falsePositives++;
+			}
+		}
+
+		assertTrue(falsePositives < 20000 * 0.02, "False positives: " + falsePositives);
+	}
+
+	@Test
+	void concurrentPutsWhileGrowingAreAllKept() {
+
+		ScalableBloomFilter filter = new ScalableBloomFilter(10, 0.01);
+		List<CompletableFuture<Void>> writers = new ArrayList<>();
+
+		for(int thread = 0; thread < 8; thread++){
+			int prefix = thread;
+			writers.add(CompletableFuture.runAsync(() -> {
+				for(int key = 0; key < 5000; key++){
+					filter.put(prefix + "-" + key);
+				}
+			}));
+		}
+		writers.forEach(CompletableFuture::join);
+
+		for(int thread = 0; thread < 8; thread++){
+			for(int key = 0; key < 5000; key++){
+				assertTrue(filter.mightContain(thread + "-" + key));
+			}
+		}
+	}
+}
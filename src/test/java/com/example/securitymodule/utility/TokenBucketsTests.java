@@ -0,0 +1,57 @@
+package com.example.securitymodule.utility;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketsTests {
+
+	@Test
+	void burstThenOneTokenPerInterval() throws InterruptedException {
+
+		TokenBuckets buckets = new TokenBuckets(2, 100, 100);
+
+		assertEquals(0, buckets.tryConsume("client"));
+		assertEquals(0, buckets.tryConsume("client"));
+		long wait = buckets.tryConsume("client");
+		assertTrue(wait > 0 && wait <= 100);
+		assertEquals(0, buckets.tryConsume("other")); // Each key has its own bucket.
+
+		Thread.sleep(wait + 20);
+		assertEquals(0, buckets.tryConsume("client"));
+		assertTrue(buckets.tryConsume("client") > 0);
+	}
+
+	@Test
+	void drainedBucketSurvivesAFloodOfNewKeys() {
+
+		TokenBuckets buckets = new TokenBuckets(1, 60_000, 2);
+
+		assertEquals(0, buckets.tryConsume("attacker"));
+		assertTrue(buckets.tryConsume("attacker") > 0);
+		assertEquals(0, buckets.tryConsume("client-0")); // The last bucket of its own.
+		for(int client = 1; client < 1000; client++){
+			buckets.tryConsume("client-" + client);
+		}
+
+		assertEquals(2, buckets.size());
+		assertTrue(buckets.tryConsume("attacker") > 0); // Still drained, not evicted for a fresh one.
+		assertTrue(buckets.tryConsume("client-1000") > 0); // The newcomers share one bucket at capacity.
+	}
+
+	@Test
+	void bucketsExpireOnceRefilled() throws InterruptedException {
+
+		TokenBuckets buckets = new TokenBuckets(2, 50, 100);
+
+		buckets.tryConsume("client");
+		buckets.tryConsume("client");
+		assertEquals(1, buckets.size());
+
+		Thread.sleep(150);
+		buckets.cleanUp();
+
+		assertEquals(0, buckets.size());
+		assertEquals(0, buckets.tryConsume("client"));
+	}
+}
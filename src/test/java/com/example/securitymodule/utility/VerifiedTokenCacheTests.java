@@ -0,0 +1,50 @@
+package com.example.securitymodule.utility;
+
+import com.example.securitymodule.domain.VerifiedToken;
+import com.google.common.hash.HashCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTests {
+
+	private final VerifiedTokenCache cache = new VerifiedTokenCache(true, 10_000, new SimpleMeterRegistry());
+
+	@Test
+	void tokenIsServedUntilItExpires() {
+
+		HashCode key = cache.keyOf("live-token");
+		VerifiedToken verifiedToken = token(System.currentTimeMillis() + 60_000);
+		cache.put(key, verifiedToken);
+
+		assertSame(verifiedToken, cache.get(key));
+		assertNull(cache.get(cache.keyOf("other-token")));
+	}
+
+	@Test
+	void expiredTokenIsNeverServed() {
+
+		HashCode key = cache.keyOf("expired-token");
+		cache.put(key, token(System.currentTimeMillis() - 1));
+
+		assertNull(cache.get(key)); // Each entry dies with its own "exp", not with the cache TTL.
+	}
+
+	@Test
+	void disabledCacheKeepsNothing() {
+
+		VerifiedTokenCache disabled = new VerifiedTokenCache(false, 10_000, new SimpleMeterRegistry());
+		HashCode key = disabled.keyOf("token");
+		disabled.put(key, token(System.currentTimeMillis() + 60_000));
+
+		assertNull(disabled.get(key));
+	}
+
+	private static VerifiedToken token(long expiresAt) {
+		return new VerifiedToken("id", "cached-user", Collections.emptyList(), new Date(), new Date(expiresAt), null, null);
+	}
+}